@@ -39,6 +39,15 @@ public class AbstractService {
     @Autowired
     private RegistryServerSync sync;
 
+    /**
+     * Unregister the old url and register the new one, both through the registry client, so it
+     * registers the new one again after a reconnect.
+     */
+    protected void replace(URL oldUrl, URL newUrl) {
+        registryService.unregister(oldUrl);
+        registryService.register(newUrl);
+    }
+
     public ConcurrentMap<String, ConcurrentMap<String, Map<Long, URL>>> getRegistryCache() {
         return sync.getRegistryCache();
     }
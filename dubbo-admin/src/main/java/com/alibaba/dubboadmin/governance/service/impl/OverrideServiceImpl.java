@@ -52,8 +52,7 @@ public class OverrideServiceImpl extends AbstractService implements OverrideServ
         }
         URL newOverride = getUrlFromOverride(override);
 
-        registryService.unregister(oldOverride);
-        registryService.register(newOverride);
+        replace(oldOverride, newOverride);
 
     }
 
@@ -79,8 +78,7 @@ public class OverrideServiceImpl extends AbstractService implements OverrideServ
         }
 
         URL newOverride = oldOverride.addParameter("enabled", true);
-        registryService.unregister(oldOverride);
-        registryService.register(newOverride);
+        replace(oldOverride, newOverride);
 
     }
 
@@ -98,8 +96,7 @@ public class OverrideServiceImpl extends AbstractService implements OverrideServ
         }
 
         URL newProvider = oldProvider.addParameter("enabled", false);
-        registryService.unregister(oldProvider);
-        registryService.register(newProvider);
+        replace(oldProvider, newProvider);
 
     }
 
@@ -223,8 +223,7 @@ public class ProviderServiceImpl extends AbstractService implements ProviderServ
         }
         URL newProvider = provider.toUrl();
 
-        registryService.unregister(oldProvider);
-        registryService.register(newProvider);
+        replace(oldProvider, newProvider);
     }
 
     public Provider findProvider(Long id) {
@@ -50,8 +50,7 @@ public class RouteServiceImpl extends AbstractService implements RouteService {
             throw new IllegalStateException("Route was changed!");
         }
 
-        registryService.unregister(oldRoute);
-        registryService.register(route.toUrl());
+        replace(oldRoute, route.toUrl());
     }
 
     public void deleteRoute(Long id) {
@@ -75,9 +74,8 @@ public class RouteServiceImpl extends AbstractService implements RouteService {
             return;
         }
 
-        registryService.unregister(oldRoute);
         URL newRoute = oldRoute.addParameter("enabled", true);
-        registryService.register(newRoute);
+        replace(oldRoute, newRoute);
 
     }
 
@@ -95,8 +93,7 @@ public class RouteServiceImpl extends AbstractService implements RouteService {
         }
 
         URL newRoute = oldRoute.addParameter("enabled", false);
-        registryService.unregister(oldRoute);
-        registryService.register(newRoute);
+        replace(oldRoute, newRoute);
 
     }
 
@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubboadmin.registry.common.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * LogReader
+ * <p>
+ * Reads pages of lines backward or forward from a byte offset of a log file through a sliding memory mapped
+ * window, so only the returned lines are copied to the heap. Lines can be filtered by a substring and by a
+ * minimum level, continuation lines (stack traces) take the level of the entry they belong to. A page scans
+ * at most {@link #MAX_SCAN_LENGTH} bytes, a search without matches returns an empty page to continue from.
+ * A line longer than {@link #MAX_LINE_LENGTH} is scanned for its newline in steps of that length, so the
+ * scan limit holds inside a single line too.
+ * <p>
+ * The same class is kept in dubbo-admin and dubbo-monitor-simple, the two are built and released apart
+ * without a module in common, change both copies together.
+ */
+public class LogReader {
+
+    public static final String[] LEVELS = new String[]{"TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL"};
+
+    private static final int WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final int MAX_PENDING_LINES = 10000;
+
+    private static final int LEVEL_PREFIX_LENGTH = 128;
+
+    private static final String CHARSET = "UTF-8";
+
+    public static final long MAX_SCAN_LENGTH = 32 * 1024 * 1024;
+
+    private final File file;
+
+    private final long maxScanLength;
+
+    public LogReader(File file) {
+        this(file, MAX_SCAN_LENGTH);
+    }
+
+    LogReader(File file, long maxScanLength) {
+        this.file = file;
+        this.maxScanLength = maxScanLength;
+    }
+
+    /**
+     * Get the log file followed by its rotated files (<code>name.1</code>, <code>name.2018-01-01</code>, ...),
+     * newest first.
+     */
+    public static List<File> getFiles(final File file) {
+        List<File> files = new ArrayList<File>();
+        File dir = file.getAbsoluteFile().getParentFile();
+        File[] children = dir == null ? null : dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isFile() && child.getName().startsWith(file.getName() + ".")) {
+                    files.add(child);
+                }
+            }
+        }
+        Collections.sort(files, new Comparator<File>() {
+            public int compare(File o1, File o2) {
+                long m1 = o1.lastModified();
+                long m2 = o2.lastModified();
+                return m1 > m2 ? -1 : m1 < m2 ? 1 : o1.getName().compareTo(o2.getName());
+            }
+        });
+        files.add(0, file);
+        return files;
+    }
+
+    /**
+     * Get the index of a level in {@link #LEVELS}.
+     *
+     * @return the index, or -1 if unknown.
+     */
+    public static int indexOfLevel(String level) {
+        return level == null ? -1 : Arrays.asList(LEVELS).indexOf(level.toUpperCase());
+    }
+
+    /**
+     * Read the lines before an offset, in file order.
+     *
+     * @param end    exclusive end offset, negative for the end of the file
+     * @param limit  max lines
+     * @param search substring the lines must contain, or null
+     * @param level  min level of the entries, or null
+     */
+    public Chunk readBackward(long end, int limit, String search, String level) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            Window window = new Window(input.getChannel());
+            long size = window.size;
+            int threshold = indexOfLevel(level);
+            if (end < 0 || end > size) {
+                end = size;
+            }
+            List<String> lines = new ArrayList<String>();
+            List<String> pending = new ArrayList<String>();
+            long pos = end;
+            long start = end;
+            // end of the line whose newline is still being looked for, or -1
+            long cut = -1;
+            while (pos > 0 && lines.size() < limit) {
+                if (end - pos >= maxScanLength) {
+                    // an entry cut by the limit is read again from its end by the next page
+                    if (start == end) {
+                        start = pos;
+                    }
+                    break;
+                }
+                long p = pos - 1;
+                long lineEnd = pos;
+                if (cut >= 0) {
+                    lineEnd = cut;
+                } else if (window.get(p) == '\n') {
+                    lineEnd = p;
+                    p--;
+                }
+                long floor = p - MAX_LINE_LENGTH;
+                while (p >= 0 && p > floor && window.get(p) != '\n') {
+                    p--;
+                }
+                pos = p + 1;
+                if (p >= 0 && p == floor) {
+                    cut = lineEnd;
+                    continue;
+                }
+                cut = -1;
+                long lineStart = p + 1;
+                String line = window.getLine(lineStart, lineEnd);
+                if (threshold < 0) {
+                    if (search == null || line.contains(search)) {
+                        lines.add(line);
+                    }
+                    start = pos;
+                    continue;
+                }
+                int index = getLevel(line);
+                if (index < 0) {
+                    if (pending.size() < MAX_PENDING_LINES) {
+                        pending.add(line);
+                    }
+                    continue;
+                }
+                if (index >= threshold) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        if (search == null || pending.get(i).contains(search)) {
+                            lines.add(pending.get(i));
+                        }
+                    }
+                    if (search == null || line.contains(search)) {
+                        lines.add(line);
+                    }
+                }
+                pending.clear();
+                start = pos;
+            }
+            if (pos == 0) {
+                start = 0;
+            }
+            Collections.reverse(lines);
+            return new Chunk(lines, start, end, size);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read the lines from an offset, in file order.
+     *
+     * @param start  start offset of a line
+     * @param limit  max lines
+     * @param search substring the lines must contain, or null
+     * @param level  min level of the entries, or null
+     */
+    public Chunk readForward(long start, int limit, String search, String level) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            Window window = new Window(input.getChannel());
+            long size = window.size;
+            int threshold = indexOfLevel(level);
+            if (start < 0 || start > size) {
+                start = size;
+            }
+            List<String> lines = new ArrayList<String>();
+            int current = -1;
+            long pos = start;
+            // the rest of a line already returned truncated
+            boolean skip = pos > 0 && pos < size && window.get(pos - 1) != '\n';
+            while (pos < size && lines.size() < limit && pos - start < maxScanLength) {
+                long p = pos;
+                long ceiling = pos + MAX_LINE_LENGTH + 1;
+                while (p < size && p < ceiling && window.get(p) != '\n') {
+                    p++;
+                }
+                boolean rest = skip;
+                skip = p < size && p == ceiling;
+                long next = skip || p >= size ? p : p + 1;
+                if (rest) {
+                    pos = next;
+                    continue;
+                }
+                String line = window.getLine(pos, p);
+                pos = next;
+                if (threshold >= 0) {
+                    int index = getLevel(line);
+                    if (index >= 0) {
+                        current = index;
+                    }
+                    if (current < threshold) {
+                        continue;
+                    }
+                }
+                if (search == null || line.contains(search)) {
+                    lines.add(line);
+                }
+            }
+            return new Chunk(lines, start, pos, size);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static int getLevel(String line) {
+        String prefix = line.length() > LEVEL_PREFIX_LENGTH ? line.substring(0, LEVEL_PREFIX_LENGTH) : line;
+        int level = -1;
+        int first = prefix.length();
+        for (int i = 0; i < LEVELS.length; i++) {
+            int j = prefix.indexOf(LEVELS[i]);
+            if (j >= 0 && j < first && (j == 0 || !Character.isLetter(prefix.charAt(j - 1)))
+                    && (j + LEVELS[i].length() == prefix.length() || !Character.isLetter(prefix.charAt(j + LEVELS[i].length())))) {
+                level = i;
+                first = j;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Chunk
+     */
+    public static class Chunk {
+
+        private final List<String> lines;
+
+        private final long start;
+
+        private final long end;
+
+        private final long size;
+
+        public Chunk(List<String> lines, long start, long end, long size) {
+            this.lines = lines;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        /**
+         * @return offset of the first scanned line, read backward from here for the previous page.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return offset after the last scanned line, read forward from here for the next page.
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean hasPrevious() {
+            return start > 0;
+        }
+
+        public boolean hasNext() {
+            return end < size;
+        }
+
+    }
+
+    private static class Window {
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private long offset;
+
+        private MappedByteBuffer buffer;
+
+        Window(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        byte get(long pos) throws IOException {
+            if (buffer == null || pos < offset || pos >= offset + buffer.limit()) {
+                map(pos);
+            }
+            return buffer.get((int) (pos - offset));
+        }
+
+        String getLine(long from, long to) throws IOException {
+            boolean truncated = to - from > MAX_LINE_LENGTH;
+            if (truncated) {
+                to = from + MAX_LINE_LENGTH;
+            }
+            if (to > from && get(to - 1) == '\r') {
+                to--;
+            }
+            byte[] bytes = new byte[(int) (to - from)];
+            if (bytes.length > 0) {
+                get(from);
+                if (to <= offset + buffer.limit()) {
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.position((int) (from - offset));
+                    slice.get(bytes);
+                } else {
+                    for (int i = 0; i < bytes.length; i++) {
+                        bytes[i] = get(from + i);
+                    }
+                }
+            }
+            String line = new String(bytes, CHARSET);
+            return truncated ? line + " ..." : line;
+        }
+
+        private void map(long pos) throws IOException {
+            offset = Math.max(0, Math.min(pos - WINDOW_SIZE / 2, size - WINDOW_SIZE));
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, size - offset));
+        }
+
+    }
+
+}
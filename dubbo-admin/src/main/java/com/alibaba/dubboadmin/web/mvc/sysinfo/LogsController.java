@@ -17,11 +17,10 @@
 package com.alibaba.dubboadmin.web.mvc.sysinfo;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +29,7 @@ import javax.servlet.http.HttpServletResponse;
 import com.alibaba.dubbo.common.logger.Level;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
 import com.alibaba.dubboadmin.registry.common.domain.User;
+import com.alibaba.dubboadmin.registry.common.util.LogReader;
 import com.alibaba.dubboadmin.web.mvc.BaseController;
 
 import org.springframework.stereotype.Controller;
@@ -40,45 +40,98 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @RequestMapping("/sysinfo/logs")
 public class LogsController extends BaseController {
 
-    private static final int SHOW_LOG_LENGTH = 30000;
+    private static final int DEFAULT_LIMIT = 200;
+
+    private static final int MAX_LIMIT = 1000;
 
     @RequestMapping("")
     public String index(HttpServletRequest request, HttpServletResponse response, Model model) throws Exception {
         prepare(request, response, model, "index", "logs");
         long size;
-        String content;
         String modified;
         File file = LoggerFactory.getFile();
-        if (file != null && file.exists()) {
-            FileInputStream fis = new FileInputStream(file);
-            FileChannel channel = fis.getChannel();
-            size = channel.size();
-            ByteBuffer bb;
-            if (size <= SHOW_LOG_LENGTH) {
-                bb = ByteBuffer.allocate((int) size);
-                channel.read(bb, 0);
-            } else {
-                int pos = (int) (size - SHOW_LOG_LENGTH);
-                bb = ByteBuffer.allocate(SHOW_LOG_LENGTH);
-                channel.read(bb, pos);
+        File current = file;
+        List<String> files = new ArrayList<String>();
+        if (file != null) {
+            for (File f : LogReader.getFiles(file)) {
+                files.add(f.getName());
+                if (f.getName().equals(request.getParameter("file"))) {
+                    current = f;
+                }
             }
-            bb.flip();
-            content = new String(bb.array()).replace("<", "&lt;").replace(">", "&gt;");
-            modified = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(file.lastModified()));
+        }
+        String search = request.getParameter("search");
+        if (search != null && search.length() == 0) {
+            search = null;
+        }
+        String filter = request.getParameter("filter");
+        if (LogReader.indexOfLevel(filter) < 0) {
+            filter = null;
+        }
+        int limit = Math.min(Math.max(1, (int) parseNumber(request.getParameter("limit"), DEFAULT_LIMIT)), MAX_LIMIT);
+        long offset = parseNumber(request.getParameter("offset"), -1);
+        List<String> lines = new ArrayList<String>();
+        if (current != null && current.exists()) {
+            LogReader reader = new LogReader(current);
+            LogReader.Chunk chunk = "next".equals(request.getParameter("direction"))
+                    ? reader.readForward(offset, limit, search, filter)
+                    : reader.readBackward(offset, limit, search, filter);
+            for (String line : chunk.getLines()) {
+                lines.add(escape(line));
+            }
+            size = chunk.getSize();
+            modified = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(current.lastModified()));
+            model.addAttribute("start", chunk.getStart());
+            model.addAttribute("end", chunk.getEnd());
+            model.addAttribute("hasPrevious", chunk.hasPrevious());
+            model.addAttribute("hasNext", chunk.hasNext());
         } else {
             size = 0;
-            content = "";
             modified = "Not exist";
         }
         Level level = LoggerFactory.getLevel();
-        model.addAttribute("name", file == null ? "" : file.getAbsoluteFile());
+        model.addAttribute("name", current == null ? "" : current.getAbsoluteFile());
+        model.addAttribute("file", current == null || current == file ? "" : current.getName());
+        model.addAttribute("files", files);
         model.addAttribute("size", String.valueOf(size));
         model.addAttribute("level", level == null ? "" : level);
         model.addAttribute("modified", modified);
-        model.addAttribute("content", content);
+        model.addAttribute("lines", lines);
+        model.addAttribute("search", search == null ? "" : search);
+        model.addAttribute("filter", filter == null ? "" : filter);
+        model.addAttribute("levels", LogReader.LEVELS);
+        model.addAttribute("limit", limit);
         return "sysinfo/screen/logs/index";
     }
 
+    private static long parseNumber(String value, long defaultValue) {
+        if (value != null && value.length() > 0) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    private static String escape(String value) {
+        StringBuilder buf = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '<' ? "&lt;" : c == '>' ? "&gt;" : c == '&' ? "&amp;" : null;
+            if (replacement != null) {
+                if (buf == null) {
+                    buf = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                buf.append(replacement);
+            } else if (buf != null) {
+                buf.append(c);
+            }
+        }
+        return buf == null ? value : buf.toString();
+    }
+
     public boolean change(Map<String, Object> context) throws Exception {
         String contextLevel = (String) context.get("level");
         if (contextLevel == null || contextLevel.length() == 0) {
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubboadmin.governance.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.registry.NotifyListener;
+import com.alibaba.dubbo.registry.RegistryService;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * AbstractServiceTest
+ */
+public class AbstractServiceTest {
+
+    @Test
+    public void testReplace() {
+        final List<String> calls = new ArrayList<String>();
+        AbstractService service = new AbstractService();
+        // any registry client, the admin only talks to it through RegistryService
+        service.registryService = new RegistryService() {
+            public void register(URL url) {
+                calls.add("register " + url.getParameter("enabled"));
+            }
+
+            public void unregister(URL url) {
+                calls.add("unregister " + url.getParameter("enabled"));
+            }
+
+            public void subscribe(URL url, NotifyListener listener) {
+                calls.add("subscribe");
+            }
+
+            public void unsubscribe(URL url, NotifyListener listener) {
+                calls.add("unsubscribe");
+            }
+
+            public List<URL> lookup(URL url) {
+                calls.add("lookup");
+                return null;
+            }
+        };
+        URL oldRoute = URL.valueOf("route://0.0.0.0/com.foo.BarService?category=routers&enabled=true");
+        service.replace(oldRoute, oldRoute.addParameter("enabled", false));
+        Assert.assertEquals(Arrays.asList("unregister true", "register false"), calls);
+    }
+
+}
@@ -25,7 +25,11 @@ import com.alibaba.dubbo.common.utils.NamedThreadFactory;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.monitor.MonitorService;
 import com.alibaba.dubbo.monitor.dubbo.Statistics;
+import com.alibaba.dubbo.monitor.simple.common.CardinalityGuard;
 import com.alibaba.dubbo.monitor.simple.common.CountUtils;
+import com.alibaba.dubbo.monitor.simple.common.MonitorMetrics;
+import com.alibaba.dubbo.monitor.simple.common.StatisticsSnapshot;
+import com.alibaba.dubbo.monitor.simple.common.StatisticsWalker;
 
 import com.alibaba.fastjson.JSON;
 import org.jfree.chart.ChartFactory;
@@ -56,7 +60,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -65,25 +71,55 @@ import java.util.stream.Stream;
 /**
  * SimpleMonitorService
  */
-public class SimpleMonitorService implements MonitorService {
+public class SimpleMonitorService implements MonitorService, BatchMonitorService {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleMonitorService.class);
 
     private static final String[] types = {SUCCESS, FAILURE, ELAPSED, CONCURRENT, MAX_ELAPSED, MAX_CONCURRENT};
 
     private static final String POISON_PROTOCOL = "poison";
-    private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1, new NamedThreadFactory("DubboMonitorTimer", true));
+    private static SimpleMonitorService INSTANCE = null;
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(2, new NamedThreadFactory("DubboMonitorTimer", true));
     private final ScheduledFuture<?> chartFuture;
+    private final ScheduledFuture<?> snapshotFuture;
     private final Thread writeThread;
-    private final BlockingQueue<URL> queue;
+    // statistics urls and whole batches, a batch is written without a url per sample
+    private final BlockingQueue<Object> queue;
+    private final CardinalityGuard cardinalityGuard;
+    private final MonitorMetrics metrics = new MonitorMetrics();
+    private final StatisticsSnapshot statisticsSnapshot = new StatisticsSnapshot();
+    private final int drawDays = Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.draw-days", "0"));
+    // apart from the page scans, so drawing and pages never wait for each other
+    private final ForkJoinPool drawPool = new ForkJoinPool(Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.draw-threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors()))));
     private String statisticsDirectory = "statistics";
     private String chartsDirectory = "charts";
     private volatile boolean running = true;
 
     public SimpleMonitorService() {
-        queue = new LinkedBlockingQueue<URL>(Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.queue", "100000")));
+        queue = new LinkedBlockingQueue<Object>(Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.queue", "100000")));
+        metrics.gauge("queue.size", new MonitorMetrics.Gauge() {
+            public long getValue() {
+                return queue.size();
+            }
+        });
+        metrics.gauge("queue.remaining", new MonitorMetrics.Gauge() {
+            public long getValue() {
+                return queue.remainingCapacity();
+            }
+        });
+        cardinalityGuard = new CardinalityGuard(Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.max-consumers", "1000")),
+                Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.max-providers", "1000")));
+        statisticsDirectory = ConfigUtils.getProperty("dubbo.statistics.directory");
+        chartsDirectory = ConfigUtils.getProperty("dubbo.charts.directory");
         writeThread = new Thread(new Runnable() {
             public void run() {
+                try {
+                    // before the first admit, so a restart keeps the hosts already written
+                    cardinalityGuard.load(new File(statisticsDirectory).toPath());
+                } catch (Throwable t) {
+                    logger.error("Unexpected error occur at load statistics hosts, cause: " + t.getMessage(), t);
+                }
                 while (running) {
                     try {
                         write(); // write statistics
@@ -109,8 +145,33 @@ public class SimpleMonitorService implements MonitorService {
                 }
             }
         }, 1, Long.valueOf(ConfigUtils.getProperty("dubbo.monitor.draw-interval", "100000")), TimeUnit.MILLISECONDS);
-        statisticsDirectory = ConfigUtils.getProperty("dubbo.statistics.directory");
-        chartsDirectory = ConfigUtils.getProperty("dubbo.charts.directory");
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        snapshotFuture = scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    statisticsSnapshot.roll(); // close the minute
+                } catch (Throwable t) {
+                    logger.error("Unexpected error occur at roll statistics snapshot, cause: " + t.getMessage(), t);
+                }
+            }
+        }, minute - System.currentTimeMillis() % minute, minute, TimeUnit.MILLISECONDS);
+        INSTANCE = this;
+    }
+
+    public static SimpleMonitorService getInstance() {
+        return INSTANCE;
+    }
+
+    public CardinalityGuard getCardinalityGuard() {
+        return cardinalityGuard;
+    }
+
+    public MonitorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public StatisticsSnapshot getStatisticsSnapshot() {
+        return statisticsSnapshot;
     }
 
     private static void createChart(String key, String service, String method, String date, String[] types, Map<String, long[]> data, double[] summary, String path) {
@@ -191,6 +252,8 @@ public class SimpleMonitorService implements MonitorService {
         }
         try {
             chartFuture.cancel(true);
+            snapshotFuture.cancel(true);
+            drawPool.shutdown();
         } catch (Throwable t) {
             logger.warn(t.getMessage(), t);
         }
@@ -200,12 +263,19 @@ public class SimpleMonitorService implements MonitorService {
     /*
         发送到日志项目 做持久化
      */
+    private static boolean isPersistent() {
+        String persistUrl = ConfigUtils.getProperty("statistics-persist-url");
+        return persistUrl != null && persistUrl.length() > 0;
+    }
+
     private void persist(URL statistics){
         String persistUrl = ConfigUtils.getProperty("statistics-persist-url");
         if(persistUrl==null||persistUrl.equals("")){
+            metrics.counter("persist.skipped").increment();
             logger.warn("没有指定statistics-persist-url,监控数据将无法持久化");
             return;
         }else{
+            long start = System.nanoTime();
             try {
                 logger.debug("persistUrl:"+persistUrl);
                 java.net.URL url = new java.net.URL(persistUrl);
@@ -217,12 +287,17 @@ public class SimpleMonitorService implements MonitorService {
                 conn.getOutputStream().flush();
                 conn.connect();
                 if(conn.getResponseCode()== HttpStatus.OK.value()){
+                    metrics.counter("persist.success").increment();
                     logger.info("持久化statistics成功");
                 }else{
+                    metrics.counter("persist.failure").increment();
                     logger.error("持久化statistics失败");
                 }
             }catch(IOException e){
+                metrics.counter("persist.failure").increment();
                 logger.error("持久化statistics失败",e);
+            } finally {
+                metrics.histogram("persist.latency").recordSince(start);
             }
         }
 
@@ -231,7 +306,17 @@ public class SimpleMonitorService implements MonitorService {
     //负责对统计数据做持久化 用了阻塞队列,当队列没有数据时，线程被挂起
     private void write() throws Exception {
 
-        URL statistics = queue.take();
+        Object item = queue.take();
+        if (item instanceof StatisticsBatch) {
+            long start = System.nanoTime();
+            try {
+                write((StatisticsBatch) item);
+            } finally {
+                metrics.histogram("write.latency").recordSince(start);
+            }
+            return;
+        }
+        URL statistics = (URL) item;
         logger.debug("开始持久化监控数据:"+statistics);
 
 
@@ -242,6 +327,47 @@ public class SimpleMonitorService implements MonitorService {
         if (POISON_PROTOCOL.equals(statistics.getProtocol())) {
             return;
         }
+        long start = System.nanoTime();
+        try {
+            write(statistics);
+        } finally {
+            metrics.histogram("write.latency").recordSince(start);
+        }
+    }
+
+    /**
+     * Write the samples of a batch straight from its string table and value array.
+     */
+    void write(StatisticsBatch batch) {
+        int size = batch.size();
+        if (isPersistent()) {
+            // the persist service takes the parameters of each sample
+            for (int i = 0; i < size; i++) {
+                persist(batch.toURL(i));
+            }
+        } else {
+            metrics.counter("persist.skipped").add(size);
+        }
+        Date now = batch.getTimestamp() > 0 ? new Date(batch.getTimestamp()) : new Date();
+        String host = batch.getHost();
+        long[] values = new long[StatisticsBatch.VALUE_KEYS.length];
+        for (int i = 0; i < size; i++) {
+            String remote = removePort(batch.getRemote(i));
+            batch.getValues(i, values);
+            if (batch.isConsumerSide(i)) {
+                write(now, CONSUMER, batch.getService(i), batch.getMethod(i), host, remote, values);
+            } else {
+                write(now, PROVIDER, batch.getService(i), batch.getMethod(i), remote, host, values);
+            }
+        }
+    }
+
+    private static String removePort(String address) {
+        int i = address == null ? -1 : address.indexOf(':');
+        return i > 0 ? address.substring(0, i) : address;
+    }
+
+    void write(URL statistics) throws Exception {
         String timestamp = statistics.getParameter(Constants.TIMESTAMP_KEY);
         Date now;
         if (timestamp == null || timestamp.length() == 0) {
@@ -251,34 +377,51 @@ public class SimpleMonitorService implements MonitorService {
         } else {
             now = new Date(Long.parseLong(timestamp));
         }
+        String type;
+        String consumer;
+        String provider;
+        if (statistics.hasParameter(PROVIDER)) {
+            type = CONSUMER;
+            consumer = statistics.getHost();
+            provider = statistics.getParameter(PROVIDER);
+            int i = provider.indexOf(':');
+            if (i > 0) {
+                provider = provider.substring(0, i);
+            }
+        } else {
+            type = PROVIDER;
+            consumer = statistics.getParameter(CONSUMER);
+            int i = consumer == null ? -1 : consumer.indexOf(':');
+            if (i > 0) {
+                consumer = consumer.substring(0, i);
+            }
+            provider = statistics.getHost();
+        }
+        long[] values = new long[types.length];
+        for (int k = 0; k < types.length; k++) {
+            values[k] = statistics.getParameter(types[k], 0L);
+        }
+        write(now, type, statistics.getServiceInterface(), statistics.getParameter(METHOD), consumer, provider, values);
+    }
+
+    /**
+     * @param values in the order of the types
+     */
+    private void write(Date now, String type, String service, String method, String consumer, String provider, long[] values) {
         String day = new SimpleDateFormat("yyyyMMdd").format(now);
         SimpleDateFormat format = new SimpleDateFormat("HHmm");
-        for (String key : types) {
+        // fold hosts beyond the per method limit, so autoscaling can not explode the statistics tree
+        String[] hosts = cardinalityGuard.admit(day, service, method, consumer, provider);
+        consumer = hosts[0];
+        provider = hosts[1];
+        statisticsSnapshot.add(type, service, method, consumer, provider, values);
+        for (int k = 0; k < types.length; k++) {
+            String key = types[k];
             try {
-                String type;
-                String consumer;
-                String provider;
-                if (statistics.hasParameter(PROVIDER)) {
-                    type = CONSUMER;
-                    consumer = statistics.getHost();
-                    provider = statistics.getParameter(PROVIDER);
-                    int i = provider.indexOf(':');
-                    if (i > 0) {
-                        provider = provider.substring(0, i);
-                    }
-                } else {
-                    type = PROVIDER;
-                    consumer = statistics.getParameter(CONSUMER);
-                    int i = consumer == null ? -1 : consumer.indexOf(':');
-                    if (i > 0) {
-                        consumer = consumer.substring(0, i);
-                    }
-                    provider = statistics.getHost();
-                }
                 String filename = statisticsDirectory
                         + "/" + day
-                        + "/" + statistics.getServiceInterface()
-                        + "/" + statistics.getParameter(METHOD)
+                        + "/" + service
+                        + "/" + method
                         + "/" + consumer
                         + "/" + provider
                         + "/" + type + "." + key;
@@ -289,8 +432,9 @@ public class SimpleMonitorService implements MonitorService {
                 }
                 FileWriter writer = new FileWriter(file, true);
                 try {
-                    writer.write(format.format(now) + " " + statistics.getParameter(key, 0) + "\n");
+                    writer.write(format.format(now) + " " + values[k] + "\n");
                     writer.flush();
+                    metrics.counter("write.files").increment();
                     if(Boolean.valueOf(ConfigUtils.getProperty("dubbo.monitor.draw-after-write","false"))){
                         logger.debug("开始重绘");
                         draw();
@@ -299,6 +443,7 @@ public class SimpleMonitorService implements MonitorService {
                     writer.close();
                 }
             } catch (Throwable t) {
+                metrics.counter("write.errors").increment();
                 logger.error(t.getMessage(), t);
             }
         }
@@ -306,75 +451,101 @@ public class SimpleMonitorService implements MonitorService {
 
 
     //负责 对 statisticsDirectory 目录（即统计数据的持久化目录）下的 图表做重绘
-    private void draw() {
+    void draw() {
+        long start = System.nanoTime();
+        try {
+            doDraw();
+        } finally {
+            metrics.histogram("draw.duration").recordSince(start);
+        }
+    }
+
+    private void doDraw() {
         logger.debug("开始重绘图表");
         File rootDir = new File(statisticsDirectory);
         if (!rootDir.exists()) {
             logger.warn("目录"+statisticsDirectory+"不存在,将自动创建");
             rootDir.mkdirs();
         }
-        File[] dateDirs = rootDir.listFiles();
-        for (File dateDir : dateDirs) {
-            File[] serviceDirs = dateDir.listFiles();
-            for (File serviceDir : serviceDirs) {
-                File[] methodDirs = serviceDir.listFiles();
-                for (File methodDir : methodDirs) {
-                    String methodUri = chartsDirectory + "/" + dateDir.getName() + "/" + serviceDir.getName() + "/" + methodDir.getName();
-
-                    File successFile = new File(methodUri + "/" + SUCCESS + ".png");
-                    long successModified = successFile.lastModified();
-                    boolean successChanged = false;
-                    Map<String, long[]> successData = new HashMap<String, long[]>();
-                    double[] successSummary = new double[4];
-
-                    File elapsedFile = new File(methodUri + "/" + ELAPSED + ".png");
-                    long elapsedModified = elapsedFile.lastModified();
-                    boolean elapsedChanged = false;
-                    Map<String, long[]> elapsedData = new HashMap<String, long[]>();
-                    double[] elapsedSummary = new double[4];
-                    long elapsedMax = 0;
-
-                    File[] consumerDirs = methodDir.listFiles();
-                    for (File consumerDir : consumerDirs) {
-                        File[] providerDirs = consumerDir.listFiles();
-                        for (File providerDir : providerDirs) {
-                            File consumerSuccessFile = new File(providerDir, CONSUMER + "." + SUCCESS);
-                            File providerSuccessFile = new File(providerDir, PROVIDER + "." + SUCCESS);
-                            appendData(new File[]{consumerSuccessFile, providerSuccessFile}, successData, successSummary);
-                            if (consumerSuccessFile.lastModified() > successModified
-                                    || providerSuccessFile.lastModified() > successModified) {
-                                successChanged = true;
-                            }
-
-                            File consumerElapsedFile = new File(providerDir, CONSUMER + "." + ELAPSED);
-                            File providerElapsedFile = new File(providerDir, PROVIDER + "." + ELAPSED);
-                            appendData(new File[]{consumerElapsedFile, providerElapsedFile}, elapsedData, elapsedSummary);
-                            elapsedMax = Math.max(elapsedMax, CountUtils.max(new File(providerDir, CONSUMER + "." + MAX_ELAPSED)));
-                            elapsedMax = Math.max(elapsedMax, CountUtils.max(new File(providerDir, PROVIDER + "." + MAX_ELAPSED)));
-                            if (consumerElapsedFile.lastModified() > elapsedModified
-                                    || providerElapsedFile.lastModified() > elapsedModified) {
-                                elapsedChanged = true;
-                            }
-                        }
-                    }
-                    if (elapsedChanged) {
-                        divData(elapsedData, successData);
-                        elapsedSummary[0] = elapsedMax;
-                        elapsedSummary[1] = -1;
-                        elapsedSummary[2] = successSummary[3] == 0 ? 0 : elapsedSummary[3] / successSummary[3];
-                        elapsedSummary[3] = -1;
-                        createChart("ms/t", serviceDir.getName(), methodDir.getName(), dateDir.getName(), new String[]{CONSUMER, PROVIDER}, elapsedData, elapsedSummary, elapsedFile.getAbsolutePath());
-                    }
-                    if (successChanged) {
-                        divData(successData, 60);
-                        successSummary[0] = successSummary[0] / 60;
-                        successSummary[1] = successSummary[1] / 60;
-                        successSummary[2] = successSummary[2] / 60;
-                        createChart("t/s", serviceDir.getName(), methodDir.getName(), dateDir.getName(), new String[]{CONSUMER, PROVIDER}, successData, successSummary, successFile.getAbsolutePath());
-                    }
+        String fromDate = null;
+        if (drawDays > 0) {
+            fromDate = new SimpleDateFormat("yyyyMMdd").format(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(drawDays - 1)));
+        }
+        if (!running) {
+            return;
+        }
+        try {
+            StatisticsWalker.walk(drawPool, rootDir.toPath(), fromDate, null, null, new StatisticsWalker.Visitor() {
+                public void visit(StatisticsWalker.MethodNode node) {
+                    draw(node);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed meanwhile
+        }
+    }
+
+    private void draw(StatisticsWalker.MethodNode node) {
+        String methodUri = chartsDirectory + "/" + node.getDate() + "/" + node.getService() + "/" + node.getMethod();
+
+        File successFile = new File(methodUri + "/" + SUCCESS + ".png");
+        long successModified = successFile.lastModified();
+        boolean successChanged = false;
+
+        File elapsedFile = new File(methodUri + "/" + ELAPSED + ".png");
+        long elapsedModified = elapsedFile.lastModified();
+        boolean elapsedChanged = false;
+
+        // only stat the files first, most methods have not changed since the last draw
+        for (StatisticsWalker.Leaf leaf : node.getLeaves()) {
+            File providerDir = leaf.getDirectory().toFile();
+            if (!successChanged && (new File(providerDir, CONSUMER + "." + SUCCESS).lastModified() > successModified
+                    || new File(providerDir, PROVIDER + "." + SUCCESS).lastModified() > successModified)) {
+                successChanged = true;
+            }
+            if (!elapsedChanged && (new File(providerDir, CONSUMER + "." + ELAPSED).lastModified() > elapsedModified
+                    || new File(providerDir, PROVIDER + "." + ELAPSED).lastModified() > elapsedModified)) {
+                elapsedChanged = true;
+            }
+            if (successChanged && elapsedChanged) {
+                break;
+            }
+        }
+        if (!successChanged && !elapsedChanged) {
+            return;
+        }
+
+        Map<String, long[]> successData = new HashMap<String, long[]>();
+        double[] successSummary = new double[4];
+        Map<String, long[]> elapsedData = new HashMap<String, long[]>();
+        double[] elapsedSummary = new double[4];
+        long elapsedMax = 0;
+        for (StatisticsWalker.Leaf leaf : node.getLeaves()) {
+            File providerDir = leaf.getDirectory().toFile();
+            appendData(new File[]{new File(providerDir, CONSUMER + "." + SUCCESS), new File(providerDir, PROVIDER + "." + SUCCESS)}, successData, successSummary);
+            if (elapsedChanged) {
+                appendData(new File[]{new File(providerDir, CONSUMER + "." + ELAPSED), new File(providerDir, PROVIDER + "." + ELAPSED)}, elapsedData, elapsedSummary);
+                elapsedMax = Math.max(elapsedMax, CountUtils.max(new File(providerDir, CONSUMER + "." + MAX_ELAPSED)));
+                elapsedMax = Math.max(elapsedMax, CountUtils.max(new File(providerDir, PROVIDER + "." + MAX_ELAPSED)));
             }
         }
+        if (elapsedChanged) {
+            divData(elapsedData, successData);
+            elapsedSummary[0] = elapsedMax;
+            elapsedSummary[1] = -1;
+            elapsedSummary[2] = successSummary[3] == 0 ? 0 : elapsedSummary[3] / successSummary[3];
+            elapsedSummary[3] = -1;
+            metrics.counter("draw.charts").increment();
+            createChart("ms/t", node.getService(), node.getMethod(), node.getDate(), new String[]{CONSUMER, PROVIDER}, elapsedData, elapsedSummary, elapsedFile.getAbsolutePath());
+        }
+        if (successChanged) {
+            divData(successData, 60);
+            successSummary[0] = successSummary[0] / 60;
+            successSummary[1] = successSummary[1] / 60;
+            successSummary[2] = successSummary[2] / 60;
+            metrics.counter("draw.charts").increment();
+            createChart("t/s", node.getService(), node.getMethod(), node.getDate(), new String[]{CONSUMER, PROVIDER}, successData, successSummary, successFile.getAbsolutePath());
+        }
     }
 
     private void divData(Map<String, long[]> successMap, long unit) {
@@ -441,13 +612,39 @@ public class SimpleMonitorService implements MonitorService {
         collect(statistics);
     }
 
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return metrics.counter("collect.dropped").sum();
+    }
+
     public void collect(URL statistics) {
-        queue.offer(statistics);
+        metrics.counter("collect.count").increment();
+        if (!queue.offer(statistics)) {
+            metrics.counter("collect.dropped").increment();
+        }
         if (logger.isInfoEnabled()) {
             logger.info("collect statistics: " + statistics);
         }
     }
 
+    public void collect(StatisticsBatch batch) {
+        int size = batch.size();
+        metrics.counter("collect.batches").increment();
+        metrics.counter("collect.count").add(size);
+        // one unit of the queue, samples become urls only if persisted
+        int dropped = queue.offer(batch) ? 0 : size;
+        if (dropped > 0) {
+            metrics.counter("collect.dropped").add(dropped);
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("collect statistics batch: " + size + " from " + batch.getApplication() + "@" + batch.getHost()
+                    + (dropped > 0 ? ", dropped " + dropped : ""));
+        }
+    }
+
     public List<URL> lookup(URL query) {
         // TODO Auto-generated method stub
         return null;
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.MonitorService;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * StatisticsBatch
+ * <p>
+ * The statistics one node reports in a collect interval. Strings (services, methods, peers,
+ * groups, versions) are stored once in a table and referenced by index, values are kept in a
+ * flat long array, so a batch is much smaller on the wire than the same statistics as URLs.
+ * Call {@link #trimToSize()} before sending.
+ */
+public class StatisticsBatch implements Serializable {
+
+    /**
+     * The order of the values of a sample.
+     */
+    public static final String[] VALUE_KEYS = {MonitorService.SUCCESS, MonitorService.FAILURE, MonitorService.ELAPSED,
+            MonitorService.CONCURRENT, MonitorService.MAX_ELAPSED, MonitorService.MAX_CONCURRENT};
+
+    private static final long serialVersionUID = 2547153426311098231L;
+
+    // service, method, remote, consumer side, group, version
+    private static final int FIELDS = 6;
+
+    private static final int NONE = -1;
+
+    private String application;
+
+    private String host;
+
+    private int port;
+
+    private long timestamp;
+
+    private String[] strings;
+
+    private int stringCount;
+
+    private int[] fields;
+
+    private long[] values;
+
+    private int size;
+
+    private transient Map<String, Integer> stringIndex;
+
+    public StatisticsBatch() {
+        this(null, null, 0, 0);
+    }
+
+    /**
+     * @param application application of the reporting node
+     * @param host        host of the reporting node
+     * @param port        port of the reporting node, 0 for consumers
+     * @param timestamp   time of the collect interval, in milliseconds
+     */
+    public StatisticsBatch(String application, String host, int port, long timestamp) {
+        this.application = application;
+        this.host = host;
+        this.port = port;
+        this.timestamp = timestamp;
+        this.strings = new String[16];
+        this.fields = new int[16 * FIELDS];
+        this.values = new long[16 * VALUE_KEYS.length];
+    }
+
+    /**
+     * Add the statistics of one series.
+     *
+     * @param consumerSide whether reported by the consumer, then remote is the provider address
+     * @param values       values in the order of {@link #VALUE_KEYS}
+     */
+    public void add(String service, String method, String remote, boolean consumerSide,
+                    String group, String version, long[] values) {
+        if (values.length != VALUE_KEYS.length) {
+            throw new IllegalArgumentException("Expected " + VALUE_KEYS.length + " values, but " + values.length);
+        }
+        if ((size + 1) * FIELDS > fields.length) {
+            int capacity = Math.max(16, size * 2);
+            fields = Arrays.copyOf(fields, capacity * FIELDS);
+            this.values = Arrays.copyOf(this.values, capacity * VALUE_KEYS.length);
+        }
+        int f = size * FIELDS;
+        fields[f] = indexOf(service);
+        fields[f + 1] = indexOf(method);
+        fields[f + 2] = indexOf(remote);
+        fields[f + 3] = consumerSide ? 1 : 0;
+        fields[f + 4] = indexOf(group);
+        fields[f + 5] = indexOf(version);
+        System.arraycopy(values, 0, this.values, size * VALUE_KEYS.length, VALUE_KEYS.length);
+        size++;
+    }
+
+    private int indexOf(String value) {
+        if (value == null || value.length() == 0) {
+            return NONE;
+        }
+        if (stringIndex == null) {
+            stringIndex = new HashMap<String, Integer>();
+            for (int i = 0; i < stringCount; i++) {
+                stringIndex.put(strings[i], i);
+            }
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, Math.max(16, stringCount * 2));
+            }
+            index = stringCount++;
+            strings[index] = value;
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+
+    /**
+     * Drop the spare capacity of the internal arrays.
+     */
+    public void trimToSize() {
+        strings = Arrays.copyOf(strings, stringCount);
+        fields = Arrays.copyOf(fields, size * FIELDS);
+        values = Arrays.copyOf(values, size * VALUE_KEYS.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getApplication() {
+        return application;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    private String getString(int index) {
+        return index == NONE ? null : strings[index];
+    }
+
+    public String getService(int i) {
+        return getString(fields[checkIndex(i) * FIELDS]);
+    }
+
+    public String getMethod(int i) {
+        return getString(fields[checkIndex(i) * FIELDS + 1]);
+    }
+
+    /**
+     * @return the provider address if reported by the consumer, else the consumer address
+     */
+    public String getRemote(int i) {
+        return getString(fields[checkIndex(i) * FIELDS + 2]);
+    }
+
+    public boolean isConsumerSide(int i) {
+        return fields[checkIndex(i) * FIELDS + 3] == 1;
+    }
+
+    /**
+     * Copy the values of the i-th sample, in the order of {@link #VALUE_KEYS}.
+     */
+    public void getValues(int i, long[] target) {
+        System.arraycopy(values, checkIndex(i) * VALUE_KEYS.length, target, 0, VALUE_KEYS.length);
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return i;
+    }
+
+    /**
+     * @return the i-th sample as the URL <code>DubboMonitor</code> would have collected.
+     */
+    public URL toURL(int i) {
+        int f = checkIndex(i) * FIELDS;
+        String service = getString(fields[f]);
+        String method = getString(fields[f + 1]);
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (application != null) {
+            parameters.put(MonitorService.APPLICATION, application);
+        }
+        parameters.put(MonitorService.INTERFACE, service);
+        parameters.put(MonitorService.METHOD, method);
+        String remote = getString(fields[f + 2]);
+        if (remote != null) {
+            parameters.put(fields[f + 3] == 1 ? MonitorService.PROVIDER : MonitorService.CONSUMER, remote);
+        }
+        String group = getString(fields[f + 4]);
+        if (group != null) {
+            parameters.put(Constants.GROUP_KEY, group);
+        }
+        String version = getString(fields[f + 5]);
+        if (version != null) {
+            parameters.put(Constants.VERSION_KEY, version);
+        }
+        parameters.put(MonitorService.TIMESTAMP, String.valueOf(timestamp));
+        int v = i * VALUE_KEYS.length;
+        for (int k = 0; k < VALUE_KEYS.length; k++) {
+            parameters.put(VALUE_KEYS[k], String.valueOf(values[v + k]));
+        }
+        return new URL(Constants.COUNT_PROTOCOL, host, port, service + "/" + method, parameters);
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CardinalityGuard. (ThreadSafe)
+ * <p>
+ * Bounds the number of distinct consumer and provider hosts kept per (service, method) and day.
+ * Hosts seen after the limit is reached are folded into the {@link #OTHER} bucket, while a
+ * {@link HyperLogLog} keeps estimating the real cardinality. The hosts already in the statistics
+ * directory are loaded at startup, so a restart does not admit another full set of them.
+ */
+public class CardinalityGuard {
+
+    public static final String OTHER = "other";
+
+    private static final int KEEP_DAYS = 2;
+
+    private final int maxConsumers;
+
+    private final int maxProviders;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Series>> days = new ConcurrentHashMap<String, ConcurrentMap<String, Series>>();
+
+    /**
+     * @param maxConsumers max consumer hosts per method and day, 0 means unlimited
+     * @param maxProviders max provider hosts per method and day, 0 means unlimited
+     */
+    public CardinalityGuard(int maxConsumers, int maxProviders) {
+        this.maxConsumers = maxConsumers;
+        this.maxProviders = maxProviders;
+    }
+
+    public int getMaxConsumers() {
+        return maxConsumers;
+    }
+
+    public int getMaxProviders() {
+        return maxProviders;
+    }
+
+    /**
+     * Load the hosts of the days still kept from the statistics tree, all of them admitted.
+     */
+    public void load(Path root) {
+        List<String> dates = StatisticsWalker.list(root);
+        if (dates.isEmpty()) {
+            return;
+        }
+        String fromDate = dates.get(Math.max(0, dates.size() - KEEP_DAYS));
+        StatisticsWalker.walk(root, fromDate, null, null, new StatisticsWalker.Visitor() {
+            public void visit(StatisticsWalker.MethodNode node) {
+                Series series = getSeries(node.getDate(), node.getService(), node.getMethod());
+                for (StatisticsWalker.Leaf leaf : node.getLeaves()) {
+                    series.getConsumers().load(leaf.getConsumer());
+                    series.getProviders().load(leaf.getProvider());
+                }
+            }
+        });
+    }
+
+    /**
+     * Admit the sample hosts.
+     *
+     * @return the consumer and provider to record, either unchanged or {@link #OTHER}.
+     */
+    public String[] admit(String day, String service, String method, String consumer, String provider) {
+        Series series = getSeries(day, service, method);
+        return new String[]{series.getConsumers().admit(consumer), series.getProviders().admit(provider)};
+    }
+
+    private Series getSeries(String day, String service, String method) {
+        ConcurrentMap<String, Series> methods = days.get(day);
+        if (methods == null) {
+            days.putIfAbsent(day, new ConcurrentHashMap<String, Series>());
+            methods = days.get(day);
+            evict();
+        }
+        String key = service + "/" + method;
+        Series series = methods.get(key);
+        if (series == null) {
+            methods.putIfAbsent(key, new Series(day, service, method, maxConsumers, maxProviders));
+            series = methods.get(key);
+        }
+        return series;
+    }
+
+    private void evict() {
+        // days are yyyyMMdd, so the lexical order is the chronological order
+        List<String> keys = new ArrayList<String>(days.keySet());
+        if (keys.size() <= KEEP_DAYS) {
+            return;
+        }
+        Collections.sort(keys);
+        for (int i = 0; i < keys.size() - KEEP_DAYS; i++) {
+            days.remove(keys.get(i));
+        }
+    }
+
+    public List<Series> getSeries() {
+        List<Series> list = new ArrayList<Series>();
+        for (Map<String, Series> methods : days.values()) {
+            list.addAll(methods.values());
+        }
+        return list;
+    }
+
+    public static class Series {
+
+        private final String day;
+
+        private final String service;
+
+        private final String method;
+
+        private final Hosts consumers;
+
+        private final Hosts providers;
+
+        Series(String day, String service, String method, int maxConsumers, int maxProviders) {
+            this.day = day;
+            this.service = service;
+            this.method = method;
+            this.consumers = new Hosts(maxConsumers);
+            this.providers = new Hosts(maxProviders);
+        }
+
+        public String getDay() {
+            return day;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public Hosts getConsumers() {
+            return consumers;
+        }
+
+        public Hosts getProviders() {
+            return providers;
+        }
+
+    }
+
+    public static class Hosts {
+
+        private final int limit;
+
+        private final HyperLogLog estimator = new HyperLogLog();
+
+        private final Set<String> admitted = new HashSet<String>();
+
+        private long folded;
+
+        Hosts(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized String admit(String host) {
+            if (host == null) {
+                return null;
+            }
+            estimator.offer(host);
+            if (limit <= 0 || admitted.contains(host)) {
+                return host;
+            }
+            if (admitted.size() < limit) {
+                admitted.add(host);
+                return host;
+            }
+            folded++;
+            return OTHER;
+        }
+
+        synchronized void load(String host) {
+            if (host == null || OTHER.equals(host)) {
+                return;
+            }
+            estimator.offer(host);
+            if (limit > 0) {
+                admitted.add(host);
+            }
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public synchronized long getEstimate() {
+            return estimator.cardinality();
+        }
+
+        public synchronized int getAdmitted() {
+            return admitted.size();
+        }
+
+        public synchronized long getFolded() {
+            return folded;
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internal metrics of the monitor itself. (ThreadSafe)
+ * <p>
+ * Counters are striped {@link LongAdder}s and latencies go to fixed bucket histograms, so the
+ * hot paths never contend on a shared lock.
+ */
+public class MonitorMetrics {
+
+    private static final String PREFIX = "dubbo_monitor_";
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new LongAdder());
+            counter = counters.get(name);
+        }
+        return counter;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histograms.putIfAbsent(name, new LatencyHistogram());
+            histogram = histograms.get(name);
+        }
+        return histogram;
+    }
+
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<String, LatencyHistogram>(histograms);
+    }
+
+    /**
+     * Render all metrics in the prometheus text exposition format.
+     */
+    public String toText() {
+        StringBuilder buf = new StringBuilder();
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            String name = toName(entry.getKey()) + "_total";
+            buf.append("# TYPE ").append(name).append(" counter\n");
+            buf.append(name).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : getGauges().entrySet()) {
+            String name = toName(entry.getKey());
+            buf.append("# TYPE ").append(name).append(" gauge\n");
+            buf.append(name).append(' ').append(entry.getValue()).append('\n');
+        }
+        long[] bounds = LatencyHistogram.getBounds();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            String name = toName(entry.getKey()) + "_milliseconds";
+            LatencyHistogram histogram = entry.getValue();
+            long[] buckets = histogram.getBuckets();
+            buf.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                buf.append(name).append("_bucket{le=\"").append(i < bounds.length ? String.valueOf(bounds[i]) : "+Inf")
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            buf.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+            buf.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        return buf.toString();
+    }
+
+    private String toName(String key) {
+        return PREFIX + key.replace('.', '_').replace('-', '_');
+    }
+
+    public interface Gauge {
+
+        long getValue();
+
+    }
+
+}
@@ -33,6 +33,8 @@ public class Page {
 
     private final List<List<String>> rows;
 
+    private final RowSource rowSource;
+
     public Page(String navigation) {
         this(navigation, (String) null, (String[]) null, (List<List<String>>) null);
     }
@@ -53,6 +55,16 @@ public class Page {
         this.title = title;
         this.columns = columns;
         this.rows = rows;
+        this.rowSource = null;
+    }
+
+    public Page(String navigation, String title,
+                String[] columns, RowSource rowSource) {
+        this.navigation = navigation;
+        this.title = title;
+        this.columns = columns == null ? null : Arrays.asList(columns);
+        this.rows = null;
+        this.rowSource = rowSource;
     }
 
     private static List<List<String>> stringToList(String str) {
@@ -75,8 +87,32 @@ public class Page {
         return columns;
     }
 
+    /**
+     * @return the rows, or null if the page is streamed through {@link #getRowSource()}.
+     */
     public List<List<String>> getRows() {
         return rows;
     }
 
+    public boolean isStreaming() {
+        return rowSource != null;
+    }
+
+    public RowSource getRowSource() {
+        if (rowSource != null) {
+            return rowSource;
+        }
+        return new RowSource() {
+            public void write(RowWriter writer) {
+                if (rows != null) {
+                    for (List<String> row : rows) {
+                        if (!writer.write(row)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        };
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory snapshot of all statistics series. (ThreadSafe)
+ * <p>
+ * Samples are accumulated into the current minute. Once per minute {@link #roll()} turns the
+ * current minute into the last minute and renders it in the prometheus text exposition format,
+ * so scrapes only read a prepared string and never touch the statistics directory.
+ */
+public class StatisticsSnapshot {
+
+    public static final int SUCCESS = 0;
+
+    public static final int FAILURE = 1;
+
+    public static final int ELAPSED = 2;
+
+    public static final int CONCURRENT = 3;
+
+    public static final int MAX_ELAPSED = 4;
+
+    public static final int MAX_CONCURRENT = 5;
+
+    private static final String[] NAMES = {"dubbo_call_success", "dubbo_call_failure", "dubbo_call_elapsed_milliseconds",
+            "dubbo_call_concurrent", "dubbo_call_max_elapsed_milliseconds", "dubbo_call_max_concurrent"};
+
+    private static final String[] HELPS = {"Successful calls in the last minute.", "Failed calls in the last minute.",
+            "Total elapsed time of the calls in the last minute.", "Concurrent calls in the last minute.",
+            "Max elapsed time of a call in the last minute.", "Max concurrent calls in the last minute."};
+
+    private Map<String, Series> current = new HashMap<String, Series>();
+
+    private volatile long lastMinute;
+
+    private volatile int lastSize;
+
+    private volatile String text = "";
+
+    private static void appendLabel(StringBuilder buf, String name, String value, boolean first) {
+        if (!first) {
+            buf.append(',');
+        }
+        buf.append(name).append("=\"");
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '"') {
+                    buf.append('\\').append(c);
+                } else if (c == '\n') {
+                    buf.append("\\n");
+                } else {
+                    buf.append(c);
+                }
+            }
+        }
+        buf.append('"');
+    }
+
+    private static String render(List<Series> series, long timestamp) {
+        Collections.sort(series);
+        StringBuilder buf = new StringBuilder(256 + series.size() * NAMES.length * 160);
+        for (int i = 0; i < NAMES.length; i++) {
+            buf.append("# HELP ").append(NAMES[i]).append(' ').append(HELPS[i]).append('\n');
+            buf.append("# TYPE ").append(NAMES[i]).append(" gauge\n");
+            for (Series s : series) {
+                buf.append(NAMES[i]).append('{');
+                appendLabel(buf, "service", s.service, true);
+                appendLabel(buf, "method", s.method, false);
+                appendLabel(buf, "consumer", s.consumer, false);
+                appendLabel(buf, "provider", s.provider, false);
+                appendLabel(buf, "side", s.side, false);
+                buf.append("} ").append(s.values[i]).append('\n');
+            }
+        }
+        buf.append("# TYPE dubbo_snapshot_timestamp_seconds gauge\n");
+        buf.append("dubbo_snapshot_timestamp_seconds ").append(timestamp / 1000).append('\n');
+        return buf.toString();
+    }
+
+    /**
+     * Add one sample to the current minute.
+     *
+     * @param values indexed by {@link #SUCCESS}, {@link #FAILURE}, {@link #ELAPSED}, {@link #CONCURRENT},
+     *               {@link #MAX_ELAPSED} and {@link #MAX_CONCURRENT}
+     */
+    public synchronized void add(String side, String service, String method, String consumer, String provider, long[] values) {
+        String key = side + '|' + service + '|' + method + '|' + consumer + '|' + provider;
+        Series series = current.get(key);
+        if (series == null) {
+            series = new Series(side, service, method, consumer, provider);
+            current.put(key, series);
+        }
+        series.values[SUCCESS] += values[SUCCESS];
+        series.values[FAILURE] += values[FAILURE];
+        series.values[ELAPSED] += values[ELAPSED];
+        series.values[CONCURRENT] = Math.max(series.values[CONCURRENT], values[CONCURRENT]);
+        series.values[MAX_ELAPSED] = Math.max(series.values[MAX_ELAPSED], values[MAX_ELAPSED]);
+        series.values[MAX_CONCURRENT] = Math.max(series.values[MAX_CONCURRENT], values[MAX_CONCURRENT]);
+    }
+
+    /**
+     * Close the current minute and render it as the last minute.
+     */
+    public void roll() {
+        Map<String, Series> closed;
+        synchronized (this) {
+            closed = current;
+            current = new HashMap<String, Series>(Math.max(16, closed.size() * 4 / 3 + 1));
+        }
+        long now = System.currentTimeMillis();
+        text = render(new ArrayList<Series>(closed.values()), now);
+        lastSize = closed.size();
+        lastMinute = now;
+    }
+
+    /**
+     * @return the last minute in the prometheus text exposition format.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Render the current, still open, minute. The cost grows with the number of series.
+     */
+    public String getCurrentText() {
+        List<Series> series = new ArrayList<Series>();
+        synchronized (this) {
+            for (Series s : current.values()) {
+                series.add(s.copy());
+            }
+        }
+        return render(series, System.currentTimeMillis());
+    }
+
+    public long getLastMinute() {
+        return lastMinute;
+    }
+
+    public int getLastSize() {
+        return lastSize;
+    }
+
+    public synchronized int getCurrentSize() {
+        return current.size();
+    }
+
+    private static class Series implements Comparable<Series> {
+
+        private final String side;
+
+        private final String service;
+
+        private final String method;
+
+        private final String consumer;
+
+        private final String provider;
+
+        private final long[] values = new long[NAMES.length];
+
+        Series(String side, String service, String method, String consumer, String provider) {
+            this.side = side;
+            this.service = service;
+            this.method = method;
+            this.consumer = consumer;
+            this.provider = provider;
+        }
+
+        Series copy() {
+            Series series = new Series(side, service, method, consumer, provider);
+            System.arraycopy(values, 0, series.values, 0, values.length);
+            return series;
+        }
+
+        private static int compare(String s1, String s2) {
+            if (s1 == null) {
+                return s2 == null ? 0 : -1;
+            }
+            return s2 == null ? 1 : s1.compareTo(s2);
+        }
+
+        public int compareTo(Series o) {
+            int c = compare(service, o.service);
+            if (c == 0) {
+                c = compare(method, o.method);
+            }
+            if (c == 0) {
+                c = compare(consumer, o.consumer);
+            }
+            if (c == 0) {
+                c = compare(provider, o.provider);
+            }
+            if (c == 0) {
+                c = compare(side, o.side);
+            }
+            return c;
+        }
+
+    }
+
+}
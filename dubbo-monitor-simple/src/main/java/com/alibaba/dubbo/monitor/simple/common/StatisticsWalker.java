@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StatisticsWalker
+ * <p>
+ * Walks the <code>date/service/method/consumer/provider</code> statistics tree with
+ * {@link DirectoryStream}s, one fork join task per service and method, so the visitor is called
+ * concurrently. Directories deleted during the walk are skipped. Pages walk in a pool of their own,
+ * the chart drawing passes its pool, so neither waits for the other. An interrupted caller stops the
+ * walk: tasks not started yet are skipped.
+ */
+public class StatisticsWalker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsWalker.class);
+
+    // page scans
+    private static final ForkJoinPool POOL = new ForkJoinPool(Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.scan-threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+
+    private static final long LAST_MODIFIED_TTL = Long.parseLong(ConfigUtils.getProperty("dubbo.monitor.last-modified-ttl", "60000"));
+
+    private static final int LAST_MODIFIED_SIZE = 1024;
+
+    // last modified time and expiry by directory, so a conditional get rarely walks the tree
+    private static final ConcurrentMap<Path, long[]> LAST_MODIFIED = new ConcurrentHashMap<Path, long[]>();
+
+    private StatisticsWalker() {
+    }
+
+    /**
+     * List the names of the children of a directory, in order.
+     *
+     * @return the names, or an empty list if the directory does not exist (anymore).
+     */
+    public static List<String> list(Path dir) {
+        List<String> names = new ArrayList<String>();
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+            try {
+                for (Path path : stream) {
+                    names.add(path.getFileName().toString());
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (NoSuchFileException e) {
+            // deleted during the walk
+        } catch (NotDirectoryException e) {
+            // not a part of the tree
+        } catch (DirectoryIteratorException e) {
+            logger.warn("Failed to list " + dir + ", cause: " + e.getCause().getMessage());
+        } catch (IOException e) {
+            logger.warn("Failed to list " + dir + ", cause: " + e.getMessage());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Get the last modified time of a finished day, the newest file in the directory tree, cached for
+     * <code>dubbo.monitor.last-modified-ttl</code> milliseconds.
+     *
+     * @param dir  directory under the date
+     * @param date yyyyMMdd
+     * @return the time, or -1 if the date is today or later and may still change.
+     */
+    public static long getLastModified(Path dir, String date) {
+        if (date == null || date.compareTo(new SimpleDateFormat("yyyyMMdd").format(new Date())) >= 0) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        long[] cached = LAST_MODIFIED.get(dir);
+        if (cached != null && cached[1] > now) {
+            return cached[0];
+        }
+        if (LAST_MODIFIED.size() >= LAST_MODIFIED_SIZE) {
+            for (Iterator<long[]> iterator = LAST_MODIFIED.values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next()[1] <= now) {
+                    iterator.remove();
+                }
+            }
+        }
+        long lastModified = walkLastModified(dir);
+        if (LAST_MODIFIED.size() < LAST_MODIFIED_SIZE) {
+            LAST_MODIFIED.put(dir, new long[]{lastModified, now + LAST_MODIFIED_TTL});
+        }
+        return lastModified;
+    }
+
+    private static long walkLastModified(Path dir) {
+        final long[] lastModified = new long[]{-1};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    lastModified[0] = Math.max(lastModified[0], attrs.lastModifiedTime().toMillis());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                    lastModified[0] = Math.max(lastModified[0], Files.getLastModifiedTime(d).toMillis());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            return -1;
+        }
+        return lastModified[0];
+    }
+
+    /**
+     * Walk the statistics tree.
+     *
+     * @param root     the statistics directory
+     * @param fromDate the first date (yyyyMMdd) to walk, inclusive, null for no lower bound
+     * @param toDate   the last date (yyyyMMdd) to walk, inclusive, null for no upper bound
+     * @param service  the only service to walk, null for all services
+     * @param visitor  called once per method directory, concurrently
+     */
+    public static void walk(Path root, String fromDate, String toDate, String service, Visitor visitor) {
+        walk(POOL, root, fromDate, toDate, service, visitor);
+    }
+
+    /**
+     * Walk the statistics tree in the pool.
+     */
+    public static void walk(ForkJoinPool pool, final Path root, final String fromDate, final String toDate, final String service,
+                            final Visitor visitor) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        ForkJoinTask<Void> task = pool.submit(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                List<ServiceTask> tasks = new ArrayList<ServiceTask>();
+                for (String date : list(root)) {
+                    if ((fromDate != null && date.compareTo(fromDate) < 0)
+                            || (toDate != null && date.compareTo(toDate) > 0)) {
+                        continue;
+                    }
+                    Path dateDir = root.resolve(date);
+                    if (service != null) {
+                        tasks.add(new ServiceTask(date, service, dateDir.resolve(service), visitor, cancelled));
+                    } else {
+                        for (String s : list(dateDir)) {
+                            tasks.add(new ServiceTask(date, s, dateDir.resolve(s), visitor, cancelled));
+                        }
+                    }
+                }
+                invokeAll(tasks);
+            }
+        });
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            // the pool threads are never interrupted, the tasks check the flag instead
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public interface Visitor {
+
+        /**
+         * Visit one method directory, must be thread safe.
+         */
+        void visit(MethodNode node);
+
+    }
+
+    public static class MethodNode {
+
+        private final String date;
+
+        private final String service;
+
+        private final String method;
+
+        private final Path directory;
+
+        private final List<Leaf> leaves;
+
+        MethodNode(String date, String service, String method, Path directory, List<Leaf> leaves) {
+            this.date = date;
+            this.service = service;
+            this.method = method;
+            this.directory = directory;
+            this.leaves = leaves;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return the consumer/provider directories, ordered by consumer and then provider.
+         */
+        public List<Leaf> getLeaves() {
+            return leaves;
+        }
+
+    }
+
+    public static class Leaf {
+
+        private final String consumer;
+
+        private final String provider;
+
+        private final Path directory;
+
+        Leaf(String consumer, String provider, Path directory) {
+            this.consumer = consumer;
+            this.provider = provider;
+            this.directory = directory;
+        }
+
+        public String getConsumer() {
+            return consumer;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+    }
+
+    private static class ServiceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String date;
+
+        private final String service;
+
+        private final Path directory;
+
+        private final Visitor visitor;
+
+        private final AtomicBoolean cancelled;
+
+        ServiceTask(String date, String service, Path directory, Visitor visitor, AtomicBoolean cancelled) {
+            this.date = date;
+            this.service = service;
+            this.directory = directory;
+            this.visitor = visitor;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            List<MethodTask> tasks = new ArrayList<MethodTask>();
+            for (String method : list(directory)) {
+                tasks.add(new MethodTask(date, service, method, directory.resolve(method), visitor, cancelled));
+            }
+            invokeAll(tasks);
+        }
+
+    }
+
+    private static class MethodTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String date;
+
+        private final String service;
+
+        private final String method;
+
+        private final Path directory;
+
+        private final Visitor visitor;
+
+        private final AtomicBoolean cancelled;
+
+        MethodTask(String date, String service, String method, Path directory, Visitor visitor, AtomicBoolean cancelled) {
+            this.date = date;
+            this.service = service;
+            this.method = method;
+            this.directory = directory;
+            this.visitor = visitor;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            List<Leaf> leaves = new ArrayList<Leaf>();
+            for (String consumer : list(directory)) {
+                Path consumerDir = directory.resolve(consumer);
+                for (String provider : list(consumerDir)) {
+                    leaves.add(new Leaf(consumer, provider, consumerDir.resolve(provider)));
+                }
+            }
+            try {
+                visitor.visit(new MethodNode(date, service, method, directory, leaves));
+            } catch (Throwable t) {
+                logger.warn("Failed to visit " + directory + ", cause: " + t.getMessage(), t);
+            }
+        }
+
+    }
+
+}
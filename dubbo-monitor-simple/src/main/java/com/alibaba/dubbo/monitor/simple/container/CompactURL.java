@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.container;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * CompactURL
+ * <p>
+ * Immutable registry url kept by {@link RegistryContainer}: the parameters are one sorted key/value array
+ * instead of a map per url, keys and values repeated across urls are interned, per process values such as
+ * pid and timestamp are not. {@link #toURL()} materializes a {@link URL} when a page needs it.
+ */
+public final class CompactURL {
+
+    // values unique to a process or a registration, interning them only grows the string table
+    private static final Set<String> UNIQUE_KEYS = new HashSet<String>(Arrays.asList(
+            Constants.PID_KEY, Constants.TIMESTAMP_KEY, Constants.REMOTE_TIMESTAMP_KEY));
+
+    private final String protocol;
+
+    private final String username;
+
+    private final String password;
+
+    private final String host;
+
+    private final int port;
+
+    private final String path;
+
+    private final String[] parameters;
+
+    private final int hash;
+
+    private CompactURL(URL url) {
+        this.protocol = intern(url.getProtocol());
+        this.username = intern(url.getUsername());
+        this.password = intern(url.getPassword());
+        this.host = intern(url.getHost());
+        this.port = url.getPort();
+        this.path = intern(url.getPath());
+        Map<String, String> sorted = new TreeMap<String, String>(url.getParameters());
+        this.parameters = new String[sorted.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            parameters[i++] = intern(entry.getKey());
+            parameters[i++] = UNIQUE_KEYS.contains(entry.getKey()) ? entry.getValue() : intern(entry.getValue());
+        }
+        this.hash = computeHash();
+    }
+
+    public static CompactURL valueOf(URL url) {
+        return new CompactURL(url);
+    }
+
+    /**
+     * Materialize a list lazily, each {@link URL} is created when it is got.
+     */
+    public static List<URL> toURLs(final List<CompactURL> urls) {
+        return new AbstractList<URL>() {
+            @Override
+            public URL get(int index) {
+                return urls.get(index).toURL();
+            }
+
+            @Override
+            public int size() {
+                return urls.size();
+            }
+        };
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getParameter(String key) {
+        int low = 0;
+        int high = parameters.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = parameters[mid * 2].compareTo(key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return parameters[mid * 2 + 1];
+            }
+        }
+        return null;
+    }
+
+    public URL toURL() {
+        Map<String, String> map = new HashMap<String, String>(parameters.length);
+        for (int i = 0; i < parameters.length; i += 2) {
+            map.put(parameters[i], parameters[i + 1]);
+        }
+        return new URL(protocol, username, password, host, port, path, map);
+    }
+
+    private int computeHash() {
+        int result = protocol == null ? 0 : protocol.hashCode();
+        result = 31 * result + (username == null ? 0 : username.hashCode());
+        result = 31 * result + (password == null ? 0 : password.hashCode());
+        result = 31 * result + (host == null ? 0 : host.hashCode());
+        result = 31 * result + port;
+        result = 31 * result + (path == null ? 0 : path.hashCode());
+        result = 31 * result + Arrays.hashCode(parameters);
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompactURL)) {
+            return false;
+        }
+        CompactURL other = (CompactURL) obj;
+        return hash == other.hash && port == other.port
+                && equals(protocol, other.protocol) && equals(username, other.username)
+                && equals(password, other.password) && equals(host, other.host)
+                && equals(path, other.path) && Arrays.equals(parameters, other.parameters);
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    @Override
+    public String toString() {
+        return toURL().toString();
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.container;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DependencyGraph
+ * <p>
+ * Applications are nodes, an edge goes from a consumer application to a provider application and is
+ * weighted by the number of services between them. It is maintained from the service/application
+ * memberships as they appear and disappear, not thread safe: {@link RegistryContainer} guards it with its lock.
+ */
+public class DependencyGraph {
+
+    private final Map<String, Set<String>> serviceProviders = new HashMap<String, Set<String>>();
+
+    private final Map<String, Set<String>> serviceConsumers = new HashMap<String, Set<String>>();
+
+    private final Map<String, Map<String, Integer>> dependencies = new HashMap<String, Map<String, Integer>>();
+
+    private final Map<String, Map<String, Integer>> dependents = new HashMap<String, Map<String, Integer>>();
+
+    private static boolean add(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if (values == null) {
+            values = new HashSet<String>();
+            map.put(key, values);
+        }
+        return values.add(value);
+    }
+
+    private static boolean remove(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if (values == null || !values.remove(value)) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            map.remove(key);
+        }
+        return true;
+    }
+
+    private static Set<String> get(Map<String, Set<String>> map, String key) {
+        Set<String> values = map.get(key);
+        return values == null ? Collections.<String>emptySet() : values;
+    }
+
+    private static void change(Map<String, Map<String, Integer>> edges, String from, String to, int delta) {
+        Map<String, Integer> weights = edges.get(from);
+        if (weights == null) {
+            weights = new HashMap<String, Integer>();
+            edges.put(from, weights);
+        }
+        Integer weight = weights.get(to);
+        int value = (weight == null ? 0 : weight) + delta;
+        if (value > 0) {
+            weights.put(to, value);
+        } else {
+            weights.remove(to);
+            if (weights.isEmpty()) {
+                edges.remove(from);
+            }
+        }
+    }
+
+    private void changeEdge(String consumer, String provider, int delta) {
+        change(dependencies, consumer, provider, delta);
+        change(dependents, provider, consumer, delta);
+    }
+
+    public void addProvider(String service, String application) {
+        if (add(serviceProviders, service, application)) {
+            for (String consumer : get(serviceConsumers, service)) {
+                changeEdge(consumer, application, 1);
+            }
+        }
+    }
+
+    public void removeProvider(String service, String application) {
+        if (remove(serviceProviders, service, application)) {
+            for (String consumer : get(serviceConsumers, service)) {
+                changeEdge(consumer, application, -1);
+            }
+        }
+    }
+
+    public void addConsumer(String service, String application) {
+        if (add(serviceConsumers, service, application)) {
+            for (String provider : get(serviceProviders, service)) {
+                changeEdge(application, provider, 1);
+            }
+        }
+    }
+
+    public void removeConsumer(String service, String application) {
+        if (remove(serviceConsumers, service, application)) {
+            for (String provider : get(serviceProviders, service)) {
+                changeEdge(application, provider, -1);
+            }
+        }
+    }
+
+    /**
+     * Get the direct dependencies of an application.
+     *
+     * @param reverse the applications depending on it instead
+     * @return application to the number of services between them.
+     */
+    public Map<String, Integer> getDependencies(String application, boolean reverse) {
+        Map<String, Integer> weights = (reverse ? dependents : dependencies).get(application);
+        return weights == null ? Collections.<String, Integer>emptyMap() : Collections.unmodifiableMap(weights);
+    }
+
+    /**
+     * Get the applications reachable from an application, the application itself only when it is in a cycle.
+     */
+    public Set<String> getClosure(String application, boolean reverse) {
+        Map<String, Map<String, Integer>> edges = reverse ? dependents : dependencies;
+        Set<String> visited = new HashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        queue.add(application);
+        while (!queue.isEmpty()) {
+            Map<String, Integer> weights = edges.get(queue.poll());
+            if (weights != null) {
+                for (String next : weights.keySet()) {
+                    if (visited.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Get the cycle an application is in: the applications that depend on it and it depends on, transitively.
+     *
+     * @return the applications, including itself, or an empty set if it is not in a cycle.
+     */
+    public Set<String> getCycle(String application) {
+        Set<String> cycle = getClosure(application, false);
+        cycle.retainAll(getClosure(application, true));
+        return cycle;
+    }
+
+}
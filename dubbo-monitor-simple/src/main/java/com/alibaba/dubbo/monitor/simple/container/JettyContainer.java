@@ -40,6 +40,7 @@ public class JettyContainer implements Container {
     public static final String JETTY_DIRECTORY = "dubbo.jetty.directory";
     public static final String JETTY_PAGES = "dubbo.jetty.page";
     public static final int DEFAULT_JETTY_PORT = 8080;
+    private static final String CLASSPATH_RESOURCES = "classpath:META-INF/monitor";
     private static final Logger logger = LoggerFactory.getLogger(JettyContainer.class);
     SelectChannelConnector connector;
 
@@ -57,9 +58,12 @@ public class JettyContainer implements Container {
 
         String resources = ConfigUtils.getProperty(JETTY_DIRECTORY);
         if (resources != null && resources.length() > 0) {
-            FilterHolder resourceHolder = handler.addFilterWithMapping(ResourceFilter.class, "/*", Handler.DEFAULT);
-            resourceHolder.setInitParameter("resources", resources);
+            resources += "," + CLASSPATH_RESOURCES;
+        } else {
+            resources = CLASSPATH_RESOURCES;
         }
+        FilterHolder resourceHolder = handler.addFilterWithMapping(ResourceFilter.class, "/*", Handler.DEFAULT);
+        resourceHolder.setInitParameter("resources", resources);
 
         ServletHolder pageHolder = handler.addServletWithMapping(PageServlet.class, "/*");
         pageHolder.setInitParameter("pages", ConfigUtils.getProperty(JETTY_PAGES));
@@ -19,7 +19,6 @@ package com.alibaba.dubbo.monitor.simple.container;
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
-import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
 import com.alibaba.dubbo.common.utils.ConfigUtils;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.container.Container;
@@ -31,26 +30,41 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * RegistryContainer
+ * <p>
+ * Every notification carries the full url list of a service and category. It is converted to
+ * {@link CompactURL}s and diffed against the previous list, and only the added and removed urls update
+ * the indexes, which count the urls behind every application and service so departed ones are dropped.
+ * Writers hold the write lock for a whole notification, readers get copies under the read lock, so they
+ * never see a half applied notification. The urls of a service are kept in a set that changes in place,
+ * they are copied to a list and materialized only when a page reads them.
  */
 public class RegistryContainer implements Container {
 
     public static final String REGISTRY_ADDRESS = "dubbo.registry.address";
+
+    // delta notifications of the simple registry, see SimpleRegistryService of dubbo-registry-simple
+    private static final String DELTA_KEY = "delta";
+    private static final String REVISION_KEY = "revision";
+    private static final String DELTA_ADD = "add";
+    private static final String DELTA_RESET = "reset";
     private static RegistryContainer INSTANCE = null;
-    private final Set<String> applications = new ConcurrentHashSet<String>();
-    private final Map<String, Set<String>> providerServiceApplications = new ConcurrentHashMap<String, Set<String>>();
-    private final Map<String, Set<String>> providerApplicationServices = new ConcurrentHashMap<String, Set<String>>();
-    private final Map<String, Set<String>> consumerServiceApplications = new ConcurrentHashMap<String, Set<String>>();
-    private final Map<String, Set<String>> consumerApplicationServices = new ConcurrentHashMap<String, Set<String>>();
-    private final Set<String> services = new ConcurrentHashSet<String>();
-    private final Map<String, List<URL>> serviceProviders = new ConcurrentHashMap<String, List<URL>>();
-    private final Map<String, List<URL>> serviceConsumers = new ConcurrentHashMap<String, List<URL>>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> applications = new HashMap<String, Integer>();
+    private final Map<String, Integer> services = new HashMap<String, Integer>();
+    private final Index providers = new Index(true);
+    private final Index consumers = new Index(false);
+    private final DependencyGraph graph = new DependencyGraph();
     private RegistryService registry;
 
     public RegistryContainer() {
@@ -64,133 +78,227 @@ public class RegistryContainer implements Container {
         return INSTANCE;
     }
 
+    private static <K> void increase(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    private static <K> void decrease(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        if (count == null || count <= 1) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count - 1);
+        }
+    }
+
+    private static boolean increase(Map<String, Map<String, Integer>> counts, String key, String value) {
+        Map<String, Integer> values = counts.get(key);
+        if (values == null) {
+            values = new HashMap<String, Integer>();
+            counts.put(key, values);
+        }
+        increase(values, value);
+        return values.get(value) == 1;
+    }
+
+    private static boolean decrease(Map<String, Map<String, Integer>> counts, String key, String value) {
+        Map<String, Integer> values = counts.get(key);
+        if (values != null) {
+            decrease(values, value);
+            if (values.isEmpty()) {
+                counts.remove(key);
+            }
+            return !values.containsKey(value);
+        }
+        return false;
+    }
+
     public RegistryService getRegistry() {
         return registry;
     }
 
     public Set<String> getApplications() {
-        return Collections.unmodifiableSet(applications);
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableSet(new HashSet<String>(applications.keySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public Set<String> getDependencies(String application, boolean reverse) {
-        if (reverse) {
-            Set<String> dependencies = new HashSet<String>();
-            Set<String> services = providerApplicationServices.get(application);
-            if (services != null && services.size() > 0) {
-                for (String service : services) {
-                    Set<String> applications = consumerServiceApplications.get(service);
-                    if (applications != null && applications.size() > 0) {
-                        dependencies.addAll(applications);
-                    }
-                }
-            }
-            return dependencies;
-        } else {
-            Set<String> dependencies = new HashSet<String>();
-            Set<String> services = consumerApplicationServices.get(application);
-            if (services != null && services.size() > 0) {
-                for (String service : services) {
-                    Set<String> applications = providerServiceApplications.get(service);
-                    if (applications != null && applications.size() > 0) {
-                        dependencies.addAll(applications);
-                    }
-                }
-            }
-            return dependencies;
+        lock.readLock().lock();
+        try {
+            return new HashSet<String>(graph.getDependencies(application, reverse).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the direct dependencies of an application and the number of services between them.
+     */
+    public Map<String, Integer> getDependencyWeights(String application, boolean reverse) {
+        lock.readLock().lock();
+        try {
+            return new HashMap<String, Integer>(graph.getDependencies(application, reverse));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> getIndirectDependencies(String application, boolean reverse) {
+        lock.readLock().lock();
+        try {
+            return graph.getClosure(application, reverse);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the applications in a dependency cycle with the application, empty if none.
+     */
+    public Set<String> getDependencyCycle(String application) {
+        lock.readLock().lock();
+        try {
+            return graph.getCycle(application);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
     public Set<String> getServices() {
-        return Collections.unmodifiableSet(services);
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableSet(new HashSet<String>(services.keySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public Map<String, List<URL>> getServiceProviders() {
-        return Collections.unmodifiableMap(serviceProviders);
+        return providers.getServiceUrls();
     }
 
     public List<URL> getProvidersByService(String service) {
-        List<URL> urls = serviceProviders.get(service);
-        return urls == null ? null : Collections.unmodifiableList(urls);
+        return providers.getUrlsByService(service);
     }
 
     public List<URL> getProvidersByHost(String host) {
-        List<URL> urls = new ArrayList<URL>();
-        if (host != null && host.length() > 0) {
-            for (List<URL> providers : serviceProviders.values()) {
-                for (URL url : providers) {
-                    if (host.equals(url.getHost())) {
-                        urls.add(url);
-                    }
-                }
-            }
-        }
-        return urls;
+        return providers.getUrls(providers.hostUrls, host);
     }
 
     public List<URL> getProvidersByApplication(String application) {
-        List<URL> urls = new ArrayList<URL>();
-        if (application != null && application.length() > 0) {
-            for (List<URL> providers : serviceProviders.values()) {
-                for (URL url : providers) {
-                    if (application.equals(url.getParameter(Constants.APPLICATION_KEY))) {
-                        urls.add(url);
-                    }
-                }
-            }
-        }
-        return urls;
+        return providers.getUrls(providers.applicationUrls, application);
     }
 
     public Set<String> getHosts() {
-        Set<String> addresses = new HashSet<String>();
-        for (List<URL> providers : serviceProviders.values()) {
-            for (URL url : providers) {
-                addresses.add(url.getHost());
-            }
-        }
-        for (List<URL> providers : serviceConsumers.values()) {
-            for (URL url : providers) {
-                addresses.add(url.getHost());
-            }
+        lock.readLock().lock();
+        try {
+            Set<String> addresses = new HashSet<String>(providers.hostUrls.keySet());
+            addresses.addAll(consumers.hostUrls.keySet());
+            return addresses;
+        } finally {
+            lock.readLock().unlock();
         }
-        return addresses;
     }
 
     public Map<String, List<URL>> getServiceConsumers() {
-        return Collections.unmodifiableMap(serviceConsumers);
+        return consumers.getServiceUrls();
     }
 
     public List<URL> getConsumersByService(String service) {
-        List<URL> urls = serviceConsumers.get(service);
-        return urls == null ? null : Collections.unmodifiableList(urls);
+        return consumers.getUrlsByService(service);
     }
 
     public List<URL> getConsumersByHost(String host) {
-        List<URL> urls = new ArrayList<URL>();
-        if (host != null && host.length() > 0) {
-            for (List<URL> consumers : serviceConsumers.values()) {
-                for (URL url : consumers) {
-                    if (host.equals(url.getHost())) {
-                        urls.add(url);
-                    }
-                }
+        return consumers.getUrls(consumers.hostUrls, host);
+    }
+
+    public List<URL> getConsumersByApplication(String application) {
+        return consumers.getUrls(consumers.applicationUrls, application);
+    }
+
+    /**
+     * Apply a notification: the full url lists of the services and categories it contains.
+     */
+    void onNotify(List<URL> urls) {
+        if (urls == null || urls.size() == 0) {
+            return;
+        }
+        if (urls.get(0).hasParameter(DELTA_KEY)) {
+            onDelta(urls);
+            return;
+        }
+        Map<String, Set<CompactURL>> providerMap = new LinkedHashMap<String, Set<CompactURL>>();
+        Map<String, Set<CompactURL>> consumerMap = new LinkedHashMap<String, Set<CompactURL>>();
+        for (URL url : urls) {
+            String category = url.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY);
+            Map<String, Set<CompactURL>> map;
+            if (Constants.PROVIDERS_CATEGORY.equals(category)) {
+                map = providerMap;
+            } else if (Constants.CONSUMERS_CATEGORY.equals(category)) {
+                map = consumerMap;
+            } else {
+                continue;
+            }
+            String service = url.getServiceInterface();
+            Set<CompactURL> set = map.get(service);
+            if (set == null) {
+                set = new LinkedHashSet<CompactURL>();
+                map.put(service, set);
+            }
+            if (!Constants.EMPTY_PROTOCOL.equals(url.getProtocol())) {
+                set.add(CompactURL.valueOf(url.removeParameter(REVISION_KEY)));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Set<CompactURL>> entry : providerMap.entrySet()) {
+                providers.update(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Set<CompactURL>> entry : consumerMap.entrySet()) {
+                consumers.update(entry.getKey(), entry.getValue());
             }
+        } finally {
+            lock.writeLock().unlock();
         }
-        return Collections.unmodifiableList(urls);
     }
 
-    public List<URL> getConsumersByApplication(String application) {
-        List<URL> urls = new ArrayList<URL>();
-        if (application != null && application.length() > 0) {
-            for (List<URL> consumers : serviceConsumers.values()) {
-                for (URL url : consumers) {
-                    if (application.equals(url.getParameter(Constants.APPLICATION_KEY))) {
-                        urls.add(url);
-                    }
+    /**
+     * Apply a delta notification: urls added or removed since the last one, or a reset before a snapshot.
+     */
+    private void onDelta(List<URL> urls) {
+        lock.writeLock().lock();
+        try {
+            for (URL url : urls) {
+                String delta = url.getParameter(DELTA_KEY);
+                if (DELTA_RESET.equals(delta)) {
+                    providers.clear();
+                    consumers.clear();
+                    continue;
+                }
+                String category = url.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY);
+                Index index;
+                if (Constants.PROVIDERS_CATEGORY.equals(category)) {
+                    index = providers;
+                } else if (Constants.CONSUMERS_CATEGORY.equals(category)) {
+                    index = consumers;
+                } else {
+                    continue;
+                }
+                CompactURL compactURL = CompactURL.valueOf(url.removeParameters(DELTA_KEY, REVISION_KEY));
+                if (DELTA_ADD.equals(delta)) {
+                    index.add(url.getServiceInterface(), compactURL);
+                } else {
+                    index.remove(url.getServiceInterface(), compactURL);
                 }
             }
+        } finally {
+            lock.writeLock().unlock();
         }
-        return urls;
     }
 
     public void start() {
@@ -206,88 +314,169 @@ public class RegistryContainer implements Container {
                 Constants.CLASSIFIER_KEY, Constants.ANY_VALUE,
                 Constants.CATEGORY_KEY, Constants.PROVIDERS_CATEGORY + ","
                 + Constants.CONSUMERS_CATEGORY,
-                Constants.CHECK_KEY, String.valueOf(false));
+                Constants.CHECK_KEY, String.valueOf(false),
+                DELTA_KEY, String.valueOf(true));
         registry.subscribe(subscribeUrl, new NotifyListener() {
             public void notify(List<URL> urls) {
-                if (urls == null || urls.size() == 0) {
-                    return;
+                onNotify(urls);
+            }
+        });
+    }
+
+    public void stop() {
+    }
+
+    /**
+     * Urls of one category and their indexes, guarded by the container lock.
+     */
+    private class Index {
+
+        private final boolean provider;
+        private final Map<String, Set<CompactURL>> serviceUrls = new HashMap<String, Set<CompactURL>>();
+        private final Map<String, Set<CompactURL>> hostUrls = new HashMap<String, Set<CompactURL>>();
+        private final Map<String, Set<CompactURL>> applicationUrls = new HashMap<String, Set<CompactURL>>();
+        private final Map<String, Map<String, Integer>> serviceApplications = new HashMap<String, Map<String, Integer>>();
+
+        Index(boolean provider) {
+            this.provider = provider;
+        }
+
+        void update(String service, Set<CompactURL> urls) {
+            Set<CompactURL> old = serviceUrls.get(service);
+            if (old != null) {
+                for (Iterator<CompactURL> iterator = old.iterator(); iterator.hasNext(); ) {
+                    CompactURL url = iterator.next();
+                    if (!urls.contains(url)) {
+                        iterator.remove();
+                        removeIndexes(service, url);
+                    }
                 }
-                Map<String, List<URL>> proivderMap = new HashMap<String, List<URL>>();
-                Map<String, List<URL>> consumerMap = new HashMap<String, List<URL>>();
-                for (URL url : urls) {
-                    String application = url.getParameter(Constants.APPLICATION_KEY);
-                    if (application != null && application.length() > 0) {
-                        applications.add(application);
+            }
+            for (CompactURL url : urls) {
+                add(service, url);
+            }
+            if (old != null && old.isEmpty()) {
+                serviceUrls.remove(service);
+            }
+        }
+
+        void add(String service, CompactURL url) {
+            Set<CompactURL> urls = serviceUrls.get(service);
+            if (urls == null) {
+                urls = new LinkedHashSet<CompactURL>();
+                serviceUrls.put(service, urls);
+            }
+            if (urls.add(url)) {
+                addIndexes(service, url);
+            }
+        }
+
+        void remove(String service, CompactURL url) {
+            Set<CompactURL> urls = serviceUrls.get(service);
+            if (urls == null || !urls.remove(url)) {
+                return;
+            }
+            if (urls.isEmpty()) {
+                serviceUrls.remove(service);
+            }
+            removeIndexes(service, url);
+        }
+
+        void clear() {
+            for (String service : new ArrayList<String>(serviceUrls.keySet())) {
+                update(service, Collections.<CompactURL>emptySet());
+            }
+        }
+
+        private void addIndexes(String service, CompactURL url) {
+            String application = url.getParameter(Constants.APPLICATION_KEY);
+            addIndex(hostUrls, url.getHost(), url);
+            increase(services, service);
+            if (application != null && application.length() > 0) {
+                addIndex(applicationUrls, application, url);
+                if (increase(serviceApplications, service, application)) {
+                    if (provider) {
+                        graph.addProvider(service, application);
+                    } else {
+                        graph.addConsumer(service, application);
                     }
-                    String service = url.getServiceInterface();
-                    services.add(service);
-                    String category = url.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY);
-                    if (Constants.PROVIDERS_CATEGORY.equals(category)) {
-                        if (Constants.EMPTY_PROTOCOL.equals(url.getProtocol())) {
-                            serviceProviders.remove(service);
-                        } else {
-                            List<URL> list = proivderMap.get(service);
-                            if (list == null) {
-                                list = new ArrayList<URL>();
-                                proivderMap.put(service, list);
-                            }
-                            list.add(url);
-                            if (application != null && application.length() > 0) {
-                                Set<String> serviceApplications = providerServiceApplications.get(service);
-                                if (serviceApplications == null) {
-                                    providerServiceApplications.put(service, new ConcurrentHashSet<String>());
-                                    serviceApplications = providerServiceApplications.get(service);
-                                }
-                                serviceApplications.add(application);
-
-                                Set<String> applicationServices = providerApplicationServices.get(application);
-                                if (applicationServices == null) {
-                                    providerApplicationServices.put(application, new ConcurrentHashSet<String>());
-                                    applicationServices = providerApplicationServices.get(application);
-                                }
-                                applicationServices.add(service);
-                            }
-                        }
-                    } else if (Constants.CONSUMERS_CATEGORY.equals(category)) {
-                        if (Constants.EMPTY_PROTOCOL.equals(url.getProtocol())) {
-                            serviceConsumers.remove(service);
-                        } else {
-                            List<URL> list = consumerMap.get(service);
-                            if (list == null) {
-                                list = new ArrayList<URL>();
-                                consumerMap.put(service, list);
-                            }
-                            list.add(url);
-                            if (application != null && application.length() > 0) {
-                                Set<String> serviceApplications = consumerServiceApplications.get(service);
-                                if (serviceApplications == null) {
-                                    consumerServiceApplications.put(service, new ConcurrentHashSet<String>());
-                                    serviceApplications = consumerServiceApplications.get(service);
-                                }
-                                serviceApplications.add(application);
-
-                                Set<String> applicationServices = consumerApplicationServices.get(application);
-                                if (applicationServices == null) {
-                                    consumerApplicationServices.put(application, new ConcurrentHashSet<String>());
-                                    applicationServices = consumerApplicationServices.get(application);
-                                }
-                                applicationServices.add(service);
-                            }
-
-                        }
+                }
+                increase(applications, application);
+            }
+        }
+
+        private void removeIndexes(String service, CompactURL url) {
+            String application = url.getParameter(Constants.APPLICATION_KEY);
+            removeIndex(hostUrls, url.getHost(), url);
+            decrease(services, service);
+            if (application != null && application.length() > 0) {
+                removeIndex(applicationUrls, application, url);
+                if (decrease(serviceApplications, service, application)) {
+                    if (provider) {
+                        graph.removeProvider(service, application);
+                    } else {
+                        graph.removeConsumer(service, application);
                     }
                 }
-                if (proivderMap != null && proivderMap.size() > 0) {
-                    serviceProviders.putAll(proivderMap);
+                decrease(applications, application);
+            }
+        }
+
+        private void addIndex(Map<String, Set<CompactURL>> index, String key, CompactURL url) {
+            Set<CompactURL> urls = index.get(key);
+            if (urls == null) {
+                urls = new LinkedHashSet<CompactURL>();
+                index.put(key, urls);
+            }
+            urls.add(url);
+        }
+
+        private void removeIndex(Map<String, Set<CompactURL>> index, String key, CompactURL url) {
+            Set<CompactURL> urls = index.get(key);
+            if (urls != null) {
+                urls.remove(url);
+                if (urls.isEmpty()) {
+                    index.remove(key);
                 }
-                if (consumerMap != null && consumerMap.size() > 0) {
-                    serviceConsumers.putAll(consumerMap);
+            }
+        }
+
+        Map<String, List<URL>> getServiceUrls() {
+            lock.readLock().lock();
+            try {
+                Map<String, List<URL>> map = new HashMap<String, List<URL>>();
+                for (Map.Entry<String, Set<CompactURL>> entry : serviceUrls.entrySet()) {
+                    map.put(entry.getKey(), CompactURL.toURLs(new ArrayList<CompactURL>(entry.getValue())));
                 }
+                return Collections.unmodifiableMap(map);
+            } finally {
+                lock.readLock().unlock();
             }
-        });
-    }
+        }
+
+        List<URL> getUrlsByService(String service) {
+            lock.readLock().lock();
+            try {
+                Set<CompactURL> urls = serviceUrls.get(service);
+                return urls == null ? null : CompactURL.toURLs(new ArrayList<CompactURL>(urls));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<URL> getUrls(Map<String, Set<CompactURL>> index, String key) {
+            if (key == null || key.length() == 0) {
+                return new ArrayList<URL>();
+            }
+            lock.readLock().lock();
+            try {
+                Set<CompactURL> urls = index.get(key);
+                return urls == null ? new ArrayList<URL>() : CompactURL.toURLs(new ArrayList<CompactURL>(urls));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
 
-    public void stop() {
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.pages;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.simple.SimpleMonitorService;
+import com.alibaba.dubbo.monitor.simple.common.CardinalityGuard;
+import com.alibaba.dubbo.monitor.simple.common.Menu;
+import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CardinalityPageHandler
+ */
+@Menu(name = "Cardinality", desc = "Show consumer and provider cardinality per method.", order = 4000)
+public class CardinalityPageHandler implements PageHandler {
+
+    public Page handle(URL url) {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        SimpleMonitorService monitorService = SimpleMonitorService.getInstance();
+        String limits = "";
+        if (monitorService != null) {
+            CardinalityGuard guard = monitorService.getCardinalityGuard();
+            limits = " &gt; Limits: " + toLimit(guard.getMaxConsumers()) + " consumers, "
+                    + toLimit(guard.getMaxProviders()) + " providers";
+            List<CardinalityGuard.Series> series = guard.getSeries();
+            // estimated once per series, not once per comparison
+            final Map<CardinalityGuard.Series, Long> estimates = new IdentityHashMap<CardinalityGuard.Series, Long>();
+            for (CardinalityGuard.Series s : series) {
+                estimates.put(s, Math.max(s.getConsumers().getEstimate(), s.getProviders().getEstimate()));
+            }
+            Collections.sort(series, new Comparator<CardinalityGuard.Series>() {
+                public int compare(CardinalityGuard.Series o1, CardinalityGuard.Series o2) {
+                    long c1 = estimates.get(o1);
+                    long c2 = estimates.get(o2);
+                    return c1 == c2 ? 0 : (c1 > c2 ? -1 : 1);
+                }
+            });
+            for (CardinalityGuard.Series s : series) {
+                List<String> row = new ArrayList<String>();
+                row.add(s.getDay());
+                row.add("<a href=\"statistics.html?service=" + s.getService() + "&date=" + s.getDay() + "\">" + s.getService() + "</a>");
+                row.add(s.getMethod());
+                row.add(toCell(s.getConsumers()));
+                row.add(toCell(s.getProviders()));
+                rows.add(row);
+            }
+        }
+        return new Page("Cardinality" + limits, "Cardinality (" + rows.size() + ")",
+                new String[]{"Date:", "Service:", "Method:", "Consumers (estimated/kept/folded)", "Providers (estimated/kept/folded)"}, rows);
+    }
+
+    private String toLimit(int limit) {
+        return limit <= 0 ? "unlimited" : String.valueOf(limit);
+    }
+
+    private String toCell(CardinalityGuard.Hosts hosts) {
+        long folded = hosts.getFolded();
+        String cell = hosts.getEstimate() + " / " + (hosts.getLimit() <= 0 ? "-" : String.valueOf(hosts.getAdmitted())) + " / " + folded;
+        return folded > 0 ? "<font color=\"red\">" + cell + "</font>" : cell;
+    }
+
+}
@@ -20,9 +20,12 @@ import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.utils.ConfigUtils;
 import com.alibaba.dubbo.monitor.MonitorService;
 import com.alibaba.dubbo.monitor.simple.common.Page;
-import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+import com.alibaba.dubbo.monitor.simple.common.StatisticsWalker;
+import com.alibaba.dubbo.monitor.simple.servlet.CacheablePageHandler;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -31,7 +34,16 @@ import java.util.List;
 /**
  * ChartsPageHandler
  */
-public class ChartsPageHandler implements PageHandler {
+public class ChartsPageHandler implements CacheablePageHandler {
+
+    public long getLastModified(URL url) {
+        String date = url.getParameter("date");
+        String service = url.getParameter("service");
+        if (date == null || service == null || service.length() == 0) {
+            return -1;
+        }
+        return StatisticsWalker.getLastModified(Paths.get(ConfigUtils.getProperty("dubbo.charts.directory"), date, service), date);
+    }
 
     public Page handle(URL url) {
         String service = url.getParameter("service");
@@ -45,14 +57,10 @@ public class ChartsPageHandler implements PageHandler {
         List<List<String>> rows = new ArrayList<List<String>>();
         String directory = ConfigUtils.getProperty("dubbo.charts.directory");
         File chartsDir = new File(directory);
-        String filename = directory + "/" + date + "/" + service;
-        File serviceDir = new File(filename);
-        if (serviceDir.exists()) {
-            File[] methodDirs = serviceDir.listFiles();
-            for (File methodDir : methodDirs) {
-                String methodUri = chartsDir.getName() + "/" + date + "/" + service + "/" + methodDir.getName() + "/";
-                rows.add(toRow(methodDir, methodUri));
-            }
+        Path serviceDir = Paths.get(directory, date, service);
+        for (String method : StatisticsWalker.list(serviceDir)) {
+            String methodUri = chartsDir.getName() + "/" + date + "/" + service + "/" + method + "/";
+            rows.add(toRow(serviceDir.resolve(method).toFile(), methodUri));
         }
         StringBuilder nav = new StringBuilder();
         nav.append("<a href=\"services.html\">Services</a> &gt; ");
@@ -19,6 +19,8 @@ package com.alibaba.dubbo.monitor.simple.pages;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.common.RowSource;
+import com.alibaba.dubbo.monitor.simple.common.RowWriter;
 import com.alibaba.dubbo.monitor.simple.container.RegistryContainer;
 import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
 
@@ -35,54 +37,46 @@ public class ConsumersPageHandler implements PageHandler {
         String host = url.getParameter("host");
         String application = url.getParameter("application");
         if (service != null && service.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> consumers = RegistryContainer.getInstance().getConsumersByService(service);
-            if (consumers != null && consumers.size() > 0) {
-                for (URL u : consumers) {
-                    List<String> row = new ArrayList<String>();
-                    String s = u.toFullString();
-                    row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unsubscribe consumer?')){window.location.href='unsubscribe.html?service=" + service + "&consumer=" + URL.encode(s) + "';}\">Unsubscribe</button>");
-                    rows.add(row);
-                }
-            }
+            RowSource rows = toRows(consumers, "service=" + service);
             return new Page("<a href=\"services.html\">Services</a> &gt; " + service
                     + " &gt; <a href=\"providers.html?service=" + service
                     + "\">Providers</a> | Consumers | <a href=\"statistics.html?service=" + service
                     + "\">Statistics</a> | <a href=\"charts.html?service=" + service
-                    + "\">Charts</a>", "Consumers (" + rows.size() + ")",
+                    + "\">Charts</a>", "Consumers (" + (consumers == null ? 0 : consumers.size()) + ")",
                     new String[]{"Consumer URL:", "Unsubscribe"}, rows);
         } else if (host != null && host.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> consumers = RegistryContainer.getInstance().getConsumersByHost(host);
-            if (consumers != null && consumers.size() > 0) {
-                for (URL u : consumers) {
-                    List<String> row = new ArrayList<String>();
-                    String s = u.toFullString();
-                    row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unsubscribe consumer?')){window.location.href='unsubscribe.html?host=" + host + "&consumer=" + URL.encode(s) + "';}\">Unsubscribe</button>");
-                    rows.add(row);
-                }
-            }
-            return new Page("<a href=\"hosts.html\">Hosts</a> &gt; " + NetUtils.getHostName(host) + "/" + host + " &gt; <a href=\"providers.html?host=" + host + "\">Providers</a> | Consumers", "Consumers (" + rows.size() + ")",
+            RowSource rows = toRows(consumers, "host=" + host);
+            return new Page("<a href=\"hosts.html\">Hosts</a> &gt; " + NetUtils.getHostName(host) + "/" + host + " &gt; <a href=\"providers.html?host=" + host + "\">Providers</a> | Consumers", "Consumers (" + (consumers == null ? 0 : consumers.size()) + ")",
                     new String[]{"Consumer URL:", "Unsubscribe"}, rows);
         } else if (application != null && application.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> consumers = RegistryContainer.getInstance().getConsumersByApplication(application);
-            if (consumers != null && consumers.size() > 0) {
+            RowSource rows = toRows(consumers, "application=" + application);
+            return new Page("<a href=\"applications.html\">Applications</a> &gt; " + application + " &gt; <a href=\"providers.html?application=" + application + "\">Providers</a> | Consumers | <a href=\"dependencies.html?application=" + application + "\">Depends On</a> | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>", "Consumers (" + (consumers == null ? 0 : consumers.size()) + ")",
+                    new String[]{"Consumer URL:", "Unsubscribe"}, rows);
+        } else {
+            throw new IllegalArgumentException("Please input service or host or application parameter.");
+        }
+    }
+
+    private RowSource toRows(final List<URL> consumers, final String query) {
+        return new RowSource() {
+            public void write(RowWriter writer) {
+                if (consumers == null) {
+                    return;
+                }
                 for (URL u : consumers) {
-                    List<String> row = new ArrayList<String>();
+                    List<String> row = new ArrayList<String>(2);
                     String s = u.toFullString();
                     row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unsubscribe consumer?')){window.location.href='unsubscribe.html?application=" + application + "&consumer=" + URL.encode(s) + "';}\">Unsubscribe</button>");
-                    rows.add(row);
+                    row.add("<button onclick=\"if(confirm('Confirm unsubscribe consumer?')){window.location.href='unsubscribe.html?" + query + "&consumer=" + URL.encode(s) + "';}\">Unsubscribe</button>");
+                    if (!writer.write(row)) {
+                        return;
+                    }
                 }
             }
-            return new Page("<a href=\"applications.html\">Applications</a> &gt; " + application + " &gt; <a href=\"providers.html?application=" + application + "\">Providers</a> | Consumers | <a href=\"dependencies.html?application=" + application + "\">Depends On</a> | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>", "Consumers (" + rows.size() + ")",
-                    new String[]{"Consumer URL:", "Unsubscribe"}, rows);
-        } else {
-            throw new IllegalArgumentException("Please input service or host or application parameter.");
-        }
+        };
     }
 
 }
\ No newline at end of file
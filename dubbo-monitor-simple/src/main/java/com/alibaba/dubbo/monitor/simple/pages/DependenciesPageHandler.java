@@ -24,7 +24,10 @@ import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * DependenciesPageHandler
@@ -39,16 +42,18 @@ public class DependenciesPageHandler implements PageHandler {
         boolean reverse = url.getParameter("reverse", false);
         List<List<String>> rows = new ArrayList<List<String>>();
         Set<String> directly = RegistryContainer.getInstance().getDependencies(application, reverse);
-        Set<String> indirectly = new HashSet<String>();
-        appendDependency(rows, reverse, application, 0, new HashSet<String>(), indirectly);
+        Set<String> indirectly = RegistryContainer.getInstance().getIndirectDependencies(application, reverse);
         indirectly.remove(application);
+        Set<String> cycle = RegistryContainer.getInstance().getDependencyCycle(application);
+        appendDependency(rows, reverse, application, 0, 0, new HashSet<String>());
         return new Page("<a href=\"applications.html\">Applications</a> &gt; " + application +
                 " &gt; <a href=\"providers.html?application=" + application + "\">Providers</a> | <a href=\"consumers.html?application=" + application + "\">Consumers</a> | " +
                 (reverse ? "<a href=\"dependencies.html?application=" + application + "\">Depends On</a> | Used By"
-                        : "Depends On | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>"), (reverse ? "Used By" : "Depends On") + " (" + directly.size() + "/" + indirectly.size() + ")", new String[]{"Application Name:"}, rows);
+                        : "Depends On | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>"), (reverse ? "Used By" : "Depends On") + " (" + directly.size() + "/" + indirectly.size() + ")"
+                + (cycle.isEmpty() ? "" : " <font color=\"red\">Cycle: " + new TreeSet<String>(cycle) + "</font>"), new String[]{"Application Name:"}, rows);
     }
 
-    private void appendDependency(List<List<String>> rows, boolean reverse, String application, int level, Set<String> appended, Set<String> indirectly) {
+    private void appendDependency(List<List<String>> rows, boolean reverse, String application, int weight, int level, Set<String> appended) {
         List<String> row = new ArrayList<String>();
         StringBuilder buf = new StringBuilder();
         if (level > 0) {
@@ -63,6 +68,9 @@ public class DependenciesPageHandler implements PageHandler {
             end = true;
         } else {
             buf.append(application);
+            if (weight > 1) {
+                buf.append(" (").append(weight).append(" services)");
+            }
             if (appended.contains(application)) {
                 buf.append(" <font color=\"red\">(Cycle)</font>");
                 end = true;
@@ -75,11 +83,10 @@ public class DependenciesPageHandler implements PageHandler {
         }
 
         appended.add(application);
-        indirectly.add(application);
-        Set<String> dependencies = RegistryContainer.getInstance().getDependencies(application, reverse);
+        Map<String, Integer> dependencies = RegistryContainer.getInstance().getDependencyWeights(application, reverse);
         if (dependencies != null && dependencies.size() > 0) {
-            for (String dependency : dependencies) {
-                appendDependency(rows, reverse, dependency, level + 1, appended, indirectly);
+            for (Map.Entry<String, Integer> dependency : new TreeMap<String, Integer>(dependencies).entrySet()) {
+                appendDependency(rows, reverse, dependency.getKey(), dependency.getValue(), level + 1, appended);
             }
         }
         appended.remove(application);
@@ -17,9 +17,11 @@
 package com.alibaba.dubbo.monitor.simple.pages;
 
 import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.simple.common.LogReader;
 import com.alibaba.dubbo.monitor.simple.common.Menu;
 import com.alibaba.dubbo.monitor.simple.common.Page;
 import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+import com.alibaba.dubbo.monitor.simple.servlet.PageServlet;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
@@ -27,10 +29,7 @@ import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -43,7 +42,10 @@ import java.util.List;
 @Menu(name = "Log", desc = "Show system log.", order = Integer.MAX_VALUE - 11000)
 public class LogPageHandler implements PageHandler {
 
-    private static final int SHOW_LOG_LENGTH = 30000;
+    private static final int DEFAULT_LIMIT = 200;
+
+    // at most one table page, so the servlet never splits the lines of a chunk across pages
+    private static final int MAX_LIMIT = PageServlet.DEFAULT_PAGE_SIZE > 0 ? PageServlet.DEFAULT_PAGE_SIZE : 1000;
 
     private File file;
 
@@ -70,37 +72,109 @@ public class LogPageHandler implements PageHandler {
     }
 
     public Page handle(URL url) {
+        File current = file;
+        String name = url.getParameter("file");
+        List<File> files = file == null ? new ArrayList<File>() : LogReader.getFiles(file);
+        for (File f : files) {
+            if (f.getName().equals(name)) {
+                current = f;
+            }
+        }
+        String search = url.getParameter("search");
+        if (search != null && search.length() == 0) {
+            search = null;
+        }
+        String filter = url.getParameter("level");
+        if (LogReader.indexOfLevel(filter) < 0) {
+            filter = null;
+        }
+        int limit = Math.min(Math.max(1, url.getParameter("limit", DEFAULT_LIMIT)), MAX_LIMIT);
+        long offset = url.getParameter("offset", -1L);
+        boolean forward = "next".equals(url.getParameter("direction"));
         long size = 0;
-        String content = "";
         String modified = "Not exist";
-        if (file != null && file.exists()) {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        LogReader.Chunk chunk = null;
+        if (current != null && current.exists()) {
             try {
-                FileInputStream fis = new FileInputStream(file);
-                FileChannel channel = fis.getChannel();
-                size = channel.size();
-                ByteBuffer bb;
-                if (size <= SHOW_LOG_LENGTH) {
-                    bb = ByteBuffer.allocate((int) size);
-                    channel.read(bb, 0);
-                } else {
-                    int pos = (int) (size - SHOW_LOG_LENGTH);
-                    bb = ByteBuffer.allocate(SHOW_LOG_LENGTH);
-                    channel.read(bb, pos);
+                LogReader reader = new LogReader(current);
+                chunk = forward ? reader.readForward(offset, limit, search, filter)
+                        : reader.readBackward(offset, limit, search, filter);
+                size = chunk.getSize();
+                for (String line : chunk.getLines()) {
+                    List<String> row = new ArrayList<String>(1);
+                    row.add(escape(line));
+                    rows.add(row);
                 }
-                bb.flip();
-                content = new String(bb.array()).replace("<", "&lt;")
-                        .replace(">", "&gt;").replace("\n", "<br/><br/>");
                 modified = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
-                        .format(new Date(file.lastModified()));
+                        .format(new Date(current.lastModified()));
             } catch (IOException e) {
             }
         }
         Level level = LogManager.getRootLogger().getLevel();
-        List<List<String>> rows = new ArrayList<List<String>>();
-        List<String> row = new ArrayList<String>();
-        row.add(content);
-        rows.add(row);
-        return new Page("Log", "Log", new String[]{(file == null ? "" : file.getName()) + ", " + size + " bytes, " + modified + ", " + level}, rows);
+        StringBuilder query = new StringBuilder();
+        if (current != null && current != file) {
+            query.append("&file=").append(URL.encode(current.getName()));
+        }
+        if (search != null) {
+            query.append("&search=").append(URL.encode(search));
+        }
+        if (filter != null) {
+            query.append("&level=").append(filter);
+        }
+        query.append("&limit=").append(limit);
+        StringBuilder nav = new StringBuilder("Log");
+        for (File f : files) {
+            nav.append(" | ");
+            if (f == current) {
+                nav.append(f.getName());
+            } else {
+                nav.append("<a href=\"log.html?file=").append(URL.encode(f.getName())).append("\">").append(f.getName()).append("</a>");
+            }
+        }
+        nav.append("<form method=\"get\" action=\"log.html\" style=\"display: inline; margin-left: 20px\">");
+        if (current != null && current != file) {
+            nav.append("<input type=\"hidden\" name=\"file\" value=\"").append(escape(current.getName())).append("\" />");
+        }
+        nav.append("<input type=\"text\" name=\"search\" value=\"").append(search == null ? "" : escape(search).replace("\"", "&quot;")).append("\" /> ");
+        nav.append("<select name=\"level\"><option value=\"\">ALL</option>");
+        for (String l : LogReader.LEVELS) {
+            nav.append("<option").append(l.equals(filter) ? " selected=\"selected\"" : "").append(">").append(l).append("</option>");
+        }
+        nav.append("</select> <input type=\"submit\" value=\"Search\" /></form>");
+        if (chunk != null) {
+            nav.append(" | ");
+            if (chunk.hasPrevious()) {
+                nav.append("<a href=\"log.html?offset=").append(chunk.getStart()).append(query).append("\">&lt; Older</a>");
+            } else {
+                nav.append("&lt; Older");
+            }
+            nav.append(" | <a href=\"log.html?").append(query.substring(1)).append("\">Latest</a> | ");
+            if (chunk.hasNext()) {
+                nav.append("<a href=\"log.html?offset=").append(chunk.getEnd()).append("&direction=next").append(query).append("\">Newer &gt;</a>");
+            } else {
+                nav.append("Newer &gt;");
+            }
+        }
+        return new Page(nav.toString(), "Log", new String[]{(current == null ? "" : current.getName()) + ", " + size + " bytes, " + modified + ", " + level
+                + (chunk == null ? "" : ", offset " + chunk.getStart() + "-" + chunk.getEnd())}, rows);
+    }
+
+    private static String escape(String value) {
+        StringBuilder buf = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '<' ? "&lt;" : c == '>' ? "&gt;" : c == '&' ? "&amp;" : null;
+            if (replacement != null) {
+                if (buf == null) {
+                    buf = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                buf.append(replacement);
+            } else if (buf != null) {
+                buf.append(c);
+            }
+        }
+        return buf == null ? value : buf.toString();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.pages;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.simple.SimpleMonitorService;
+import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.common.StatisticsSnapshot;
+import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * MetricsPageHandler
+ * <p>
+ * Serves the last minute of all statistics series from memory, <code>/metrics</code> for
+ * scrapers and <code>/metrics.html</code> for people. <code>current=true</code> renders the
+ * still open minute instead.
+ */
+public class MetricsPageHandler implements PageHandler {
+
+    public Page handle(URL url) {
+        SimpleMonitorService monitorService = SimpleMonitorService.getInstance();
+        boolean current = url.getParameter("current", false);
+        String text = "";
+        String title = "Metrics";
+        if (monitorService != null) {
+            StatisticsSnapshot snapshot = monitorService.getStatisticsSnapshot();
+            if (current) {
+                text = snapshot.getCurrentText();
+                title = "Metrics (current minute, " + snapshot.getCurrentSize() + " series)";
+            } else {
+                text = snapshot.getText();
+                title = "Metrics (" + (snapshot.getLastMinute() == 0 ? "no minute closed yet"
+                        : new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(snapshot.getLastMinute()))) + ", " + snapshot.getLastSize() + " series)";
+            }
+        }
+        if ("metrics".equals(url.getPath())) {
+            return new Page("", "", "", text);
+        }
+        return new Page("Metrics (<a href=\"/metrics" + (current ? "?current=true" : "") + "\" target=\"_blank\">text</a>) &gt; "
+                + (current ? "<a href=\"metrics.html\">Last minute</a> | Current minute" : "Last minute | <a href=\"metrics.html?current=true\">Current minute</a>"),
+                title, "Exposition", "<pre style=\"text-align: left\">" + text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;") + "</pre>");
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.pages;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.simple.SimpleMonitorService;
+import com.alibaba.dubbo.monitor.simple.common.LatencyHistogram;
+import com.alibaba.dubbo.monitor.simple.common.Menu;
+import com.alibaba.dubbo.monitor.simple.common.MonitorMetrics;
+import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MonitorPageHandler
+ */
+@Menu(name = "Monitor", desc = "Show monitor internal metrics.", order = Integer.MAX_VALUE - 13000)
+public class MonitorPageHandler implements PageHandler {
+
+    public Page handle(URL url) {
+        SimpleMonitorService monitorService = SimpleMonitorService.getInstance();
+        if ("monitor".equals(url.getPath())) {
+            return new Page("", "", "", monitorService == null ? "" : monitorService.getMetrics().toText());
+        }
+        List<List<String>> rows = new ArrayList<List<String>>();
+        if (monitorService != null) {
+            MonitorMetrics metrics = monitorService.getMetrics();
+            for (Map.Entry<String, Long> entry : metrics.getGauges().entrySet()) {
+                rows.add(toRow(entry.getKey(), "gauge", String.valueOf(entry.getValue())));
+            }
+            for (Map.Entry<String, Long> entry : metrics.getCounters().entrySet()) {
+                rows.add(toRow(entry.getKey(), "counter", String.valueOf(entry.getValue())));
+            }
+            for (Map.Entry<String, LatencyHistogram> entry : metrics.getHistograms().entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                long count = histogram.getCount();
+                rows.add(toRow(entry.getKey(), "histogram", "count: " + count
+                        + ", avg: " + (count == 0 ? 0 : histogram.getSum() / count) + " ms"
+                        + ", p50: " + histogram.getPercentile(0.5) + " ms"
+                        + ", p99: " + histogram.getPercentile(0.99) + " ms"
+                        + ", max: " + histogram.getMax() + " ms"));
+            }
+        }
+        return new Page("Monitor (<a href=\"/monitor\" target=\"_blank\">text</a>) &gt; <a href=\"metrics.html\">Metrics</a>", "Monitor",
+                new String[]{"Name:", "Type", "Value"}, rows);
+    }
+
+    private List<String> toRow(String name, String type, String value) {
+        List<String> row = new ArrayList<String>();
+        row.add(name);
+        row.add(type);
+        row.add(value);
+        return row;
+    }
+
+}
@@ -19,6 +19,8 @@ package com.alibaba.dubbo.monitor.simple.pages;
 import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.common.RowSource;
+import com.alibaba.dubbo.monitor.simple.common.RowWriter;
 import com.alibaba.dubbo.monitor.simple.container.RegistryContainer;
 import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
 
@@ -35,54 +37,46 @@ public class ProvidersPageHandler implements PageHandler {
         String host = url.getParameter("host");
         String application = url.getParameter("application");
         if (service != null && service.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> providers = RegistryContainer.getInstance().getProvidersByService(service);
-            if (providers != null && providers.size() > 0) {
-                for (URL u : providers) {
-                    List<String> row = new ArrayList<String>();
-                    String s = u.toFullString();
-                    row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unregister provider?')){window.location.href='unregister.html?service=" + service + "&provider=" + URL.encode(s) + "';}\">Unregister</button>");
-                    rows.add(row);
-                }
-            }
+            RowSource rows = toRows(providers, "service=" + service);
             return new Page("<a href=\"services.html\">Services</a> &gt; " + service
                     + " &gt; Providers | <a href=\"consumers.html?service=" + service
                     + "\">Consumers</a> | <a href=\"statistics.html?service=" + service
                     + "\">Statistics</a> | <a href=\"charts.html?service=" + service
-                    + "\">Charts</a>", "Providers (" + rows.size() + ")",
+                    + "\">Charts</a>", "Providers (" + (providers == null ? 0 : providers.size()) + ")",
                     new String[]{"Provider URL:", "Unregister"}, rows);
         } else if (host != null && host.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> providers = RegistryContainer.getInstance().getProvidersByHost(host);
-            if (providers != null && providers.size() > 0) {
-                for (URL u : providers) {
-                    List<String> row = new ArrayList<String>();
-                    String s = u.toFullString();
-                    row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unregister provider?')){window.location.href='unregister.html?host=" + host + "&provider=" + URL.encode(s) + "';}\">Unregister</button>");
-                    rows.add(row);
-                }
-            }
-            return new Page("<a href=\"hosts.html\">Hosts</a> &gt; " + NetUtils.getHostName(host) + "/" + host + " &gt; Providers | <a href=\"consumers.html?host=" + host + "\">Consumers</a>", "Providers (" + rows.size() + ")",
+            RowSource rows = toRows(providers, "host=" + host);
+            return new Page("<a href=\"hosts.html\">Hosts</a> &gt; " + NetUtils.getHostName(host) + "/" + host + " &gt; Providers | <a href=\"consumers.html?host=" + host + "\">Consumers</a>", "Providers (" + (providers == null ? 0 : providers.size()) + ")",
                     new String[]{"Provider URL:", "Unregister"}, rows);
         } else if (application != null && application.length() > 0) {
-            List<List<String>> rows = new ArrayList<List<String>>();
             List<URL> providers = RegistryContainer.getInstance().getProvidersByApplication(application);
-            if (providers != null && providers.size() > 0) {
+            RowSource rows = toRows(providers, "application=" + application);
+            return new Page("<a href=\"applications.html\">Applications</a> &gt; " + application + " &gt; Providers | <a href=\"consumers.html?application=" + application + "\">Consumers</a> | <a href=\"dependencies.html?application=" + application + "\">Depends On</a> | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>", "Providers (" + (providers == null ? 0 : providers.size()) + ")",
+                    new String[]{"Provider URL:", "Unregister"}, rows);
+        } else {
+            throw new IllegalArgumentException("Please input service or host or application parameter.");
+        }
+    }
+
+    private RowSource toRows(final List<URL> providers, final String query) {
+        return new RowSource() {
+            public void write(RowWriter writer) {
+                if (providers == null) {
+                    return;
+                }
                 for (URL u : providers) {
-                    List<String> row = new ArrayList<String>();
+                    List<String> row = new ArrayList<String>(2);
                     String s = u.toFullString();
                     row.add(s.replace("&", "&amp;"));
-                    row.add("<button onclick=\"if(confirm('Confirm unregister provider?')){window.location.href='unregister.html?application=" + application + "&provider=" + URL.encode(s) + "';}\">Unregister</button>");
-                    rows.add(row);
+                    row.add("<button onclick=\"if(confirm('Confirm unregister provider?')){window.location.href='unregister.html?" + query + "&provider=" + URL.encode(s) + "';}\">Unregister</button>");
+                    if (!writer.write(row)) {
+                        return;
+                    }
                 }
             }
-            return new Page("<a href=\"applications.html\">Applications</a> &gt; " + application + " &gt; Providers | <a href=\"consumers.html?application=" + application + "\">Consumers</a> | <a href=\"dependencies.html?application=" + application + "\">Depends On</a> | <a href=\"dependencies.html?application=" + application + "&reverse=true\">Used By</a>", "Providers (" + rows.size() + ")",
-                    new String[]{"Provider URL:", "Unregister"}, rows);
-        } else {
-            throw new IllegalArgumentException("Please input service or host or application parameter.");
-        }
+        };
     }
 
 }
\ No newline at end of file
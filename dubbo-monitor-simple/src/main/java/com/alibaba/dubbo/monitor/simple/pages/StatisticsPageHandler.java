@@ -21,20 +21,32 @@ import com.alibaba.dubbo.common.utils.ConfigUtils;
 import com.alibaba.dubbo.monitor.MonitorService;
 import com.alibaba.dubbo.monitor.simple.common.CountUtils;
 import com.alibaba.dubbo.monitor.simple.common.Page;
-import com.alibaba.dubbo.monitor.simple.servlet.PageHandler;
+import com.alibaba.dubbo.monitor.simple.common.StatisticsWalker;
+import com.alibaba.dubbo.monitor.simple.servlet.CacheablePageHandler;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * StatisticsPageHandler
  */
-public class StatisticsPageHandler implements PageHandler {
+public class StatisticsPageHandler implements CacheablePageHandler {
+
+    public long getLastModified(URL url) {
+        String date = url.getParameter("date");
+        String service = url.getParameter("service");
+        if (date == null || service == null || service.length() == 0) {
+            return -1;
+        }
+        return StatisticsWalker.getLastModified(Paths.get(ConfigUtils.getProperty("dubbo.statistics.directory"), date, service), date);
+    }
 
     public Page handle(URL url) {
         String service = url.getParameter("service");
@@ -45,43 +57,40 @@ public class StatisticsPageHandler implements PageHandler {
         if (date == null || date.length() == 0) {
             date = new SimpleDateFormat("yyyyMMdd").format(new Date());
         }
-        String expand = url.getParameter("expand");
-        List<List<String>> rows = new ArrayList<List<String>>();
+        final String expand = url.getParameter("expand");
+        final Map<String, List<List<String>>> methodRows = new ConcurrentHashMap<String, List<List<String>>>();
         String directory = ConfigUtils.getProperty("dubbo.statistics.directory");
-        String filename = directory + "/" + date + "/" + service;
-        File serviceDir = new File(filename);
-        if (serviceDir.exists()) {
-            File[] methodDirs = serviceDir.listFiles();
-            for (File methodDir : methodDirs) {
+        StatisticsWalker.walk(Paths.get(directory), date, date, service, new StatisticsWalker.Visitor() {
+            public void visit(StatisticsWalker.MethodNode node) {
                 long[] statistics = newStatistics();
-                Map<String, long[]> expandMap = new HashMap<String, long[]>();
-                File[] consumerDirs = methodDir.listFiles();
-                for (File consumerDir : consumerDirs) {
+                Map<String, long[]> expandMap = new TreeMap<String, long[]>();
+                for (StatisticsWalker.Leaf leaf : node.getLeaves()) {
                     long[] expandStatistics = null;
                     if (MonitorService.CONSUMER.equals(expand)) {
-                        expandStatistics = newStatistics();
-                        expandMap.put(consumerDir.getName(), expandStatistics);
+                        expandStatistics = getStatistics(expandMap, leaf.getConsumer());
+                    } else if (MonitorService.PROVIDER.equals(expand)) {
+                        expandStatistics = getStatistics(expandMap, leaf.getProvider());
                     }
-                    File[] providerDirs = consumerDir.listFiles();
-                    for (File providerDir : providerDirs) {
-                        if (MonitorService.PROVIDER.equals(expand)) {
-                            expandStatistics = newStatistics();
-                            expandMap.put(providerDir.getName(), expandStatistics);
-                        }
-                        appendStatistics(providerDir, statistics);
-                        if (expandStatistics != null) {
-                            appendStatistics(providerDir, expandStatistics);
-                        }
+                    File providerDir = leaf.getDirectory().toFile();
+                    appendStatistics(providerDir, statistics);
+                    if (expandStatistics != null) {
+                        appendStatistics(providerDir, expandStatistics);
                     }
                 }
-                rows.add(toRow(methodDir.getName(), statistics));
-                if (expandMap != null && expandMap.size() > 0) {
+                List<List<String>> rows = new ArrayList<List<String>>();
+                rows.add(toRow(node.getMethod(), statistics));
+                if (expandMap.size() > 0) {
                     for (Map.Entry<String, long[]> entry : expandMap.entrySet()) {
-                        String node = MonitorService.CONSUMER.equals(expand) ? "&lt;--" : "--&gt;";
-                        rows.add(toRow(" &nbsp;&nbsp;&nbsp;&nbsp; |" + node + " " + entry.getKey(), entry.getValue()));
+                        String arrow = MonitorService.CONSUMER.equals(expand) ? "&lt;--" : "--&gt;";
+                        rows.add(toRow(" &nbsp;&nbsp;&nbsp;&nbsp; |" + arrow + " " + entry.getKey(), entry.getValue()));
                     }
                 }
+                methodRows.put(node.getMethod(), rows);
             }
+        });
+        List<List<String>> rows = new ArrayList<List<String>>();
+        for (List<List<String>> r : new TreeMap<String, List<List<String>>>(methodRows).values()) {
+            rows.addAll(r);
         }
         StringBuilder nav = new StringBuilder();
         nav.append("<a href=\"services.html\">Services</a> &gt; ");
@@ -139,6 +148,15 @@ public class StatisticsPageHandler implements PageHandler {
         return new long[10];
     }
 
+    private long[] getStatistics(Map<String, long[]> map, String key) {
+        long[] statistics = map.get(key);
+        if (statistics == null) {
+            statistics = newStatistics();
+            map.put(key, statistics);
+        }
+        return statistics;
+    }
+
     private void appendStatistics(File providerDir, long[] statistics) {
         statistics[0] += CountUtils.sum(new File(providerDir, MonitorService.CONSUMER + "." + MonitorService.SUCCESS));
         statistics[1] += CountUtils.sum(new File(providerDir, MonitorService.PROVIDER + "." + MonitorService.SUCCESS));
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.servlet;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PageExecutor
+ * <p>
+ * Runs expensive page handlers away from the jetty thread pool. Uses one virtual thread per page
+ * when the jvm supports them, otherwise a bounded pool; either way at most threads + queue pages
+ * are accepted at the same time and the rest are rejected.
+ */
+class PageExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageExecutor.class);
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private final boolean virtual;
+
+    PageExecutor(int threads, int queues, boolean useVirtualThreads) {
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtual = true;
+        } else {
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, queues)),
+                    new NamedThreadFactory("DubboMonitorPage", true), new ThreadPoolExecutor.AbortPolicy());
+            this.virtual = false;
+        }
+        this.permits = new Semaphore(threads + queues);
+    }
+
+    static PageExecutor create() {
+        int threads = getIntProperty("dubbo.monitor.page-threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int queues = getIntProperty("dubbo.monitor.page-queues", threads * 4);
+        boolean virtual = !"false".equalsIgnoreCase(ConfigUtils.getProperty("dubbo.monitor.page-virtual-threads"));
+        return new PageExecutor(threads, queues, virtual);
+    }
+
+    static int getIntProperty(String key, int defaultValue) {
+        String value = ConfigUtils.getProperty(key);
+        return value == null || value.trim().length() == 0 ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Throwable t) {
+            logger.warn("Failed to create virtual thread executor, use thread pool instead: " + t.getMessage(), t);
+            return null;
+        }
+    }
+
+    boolean isVirtual() {
+        return virtual;
+    }
+
+    int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @throws RejectedExecutionException when too many pages are running or waiting
+     */
+    Future<?> submit(final Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many pending pages");
+        }
+        final AtomicBoolean started = new AtomicBoolean();
+        FutureTask<Object> future = new FutureTask<Object>(new Runnable() {
+            public void run() {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                // held until the page really stops, a cancelled page may keep running for a while
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                // cancelled before running, the task never gets to release it
+                if (started.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        };
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        return future;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
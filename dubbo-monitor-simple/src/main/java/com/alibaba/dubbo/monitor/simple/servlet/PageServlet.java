@@ -21,16 +21,24 @@ import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.extension.ExtensionLoader;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
 import com.alibaba.dubbo.common.utils.StringUtils;
 import com.alibaba.dubbo.monitor.simple.common.Menu;
 import com.alibaba.dubbo.monitor.simple.common.MenuComparator;
 import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.common.RowWriter;
+
+import org.mortbay.util.ajax.Continuation;
+import org.mortbay.util.ajax.ContinuationSupport;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,7 +47,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * PageServlet
@@ -48,10 +63,23 @@ public class PageServlet extends HttpServlet {
 
     protected static final Logger logger = LoggerFactory.getLogger(PageServlet.class);
     private static final long serialVersionUID = -8370312705453328501L;
+    private static final String LAST_MODIFIED_ATTRIBUTE = PageServlet.class.getName() + ".lastModified";
+    private static final String TASK_ATTRIBUTE = PageServlet.class.getName() + ".task";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String FILTER_PREFIX = "filter_";
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+    public static final int DEFAULT_PAGE_SIZE = ConfigUtils.getProperty("dubbo.monitor.page-size") == null
+            ? 500 : Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.page-size"));
+    private static final String DEFAULT_ASYNC_PAGES = "statistics,charts,log,cardinality,dependencies";
+    private static final int DEFAULT_PAGE_TIMEOUT = 30000;
     private static PageServlet INSTANCE;
     protected final Random random = new Random();
+    private final long start = System.currentTimeMillis();
     protected final Map<String, PageHandler> pages = new ConcurrentHashMap<String, PageHandler>();
     protected final List<PageHandler> menus = new ArrayList<PageHandler>();
+    private final Set<String> asyncPages = new HashSet<String>();
+    private long pageTimeout;
+    private PageExecutor executor;
 
     public static PageServlet getInstance() {
         return INSTANCE;
@@ -81,11 +109,63 @@ public class PageServlet extends HttpServlet {
             }
         }
         Collections.sort(menus, new MenuComparator());
+        String async = ConfigUtils.getProperty("dubbo.monitor.async-pages", DEFAULT_ASYNC_PAGES);
+        for (String name : Constants.COMMA_SPLIT_PATTERN.split(async)) {
+            if (name.trim().length() > 0 && pages.containsKey(name.trim())) {
+                asyncPages.add(name.trim());
+            }
+        }
+        pageTimeout = PageExecutor.getIntProperty("dubbo.monitor.page-timeout", DEFAULT_PAGE_TIMEOUT);
+        if (!asyncPages.isEmpty()) {
+            executor = PageExecutor.create();
+            logger.info("Run pages " + asyncPages + " on " + (executor.isVirtual() ? "virtual threads" : "page thread pool")
+                    + ", timeout " + pageTimeout + "ms");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        super.destroy();
+    }
+
+    @Override
+    protected long getLastModified(HttpServletRequest request) {
+        Long cached = (Long) request.getAttribute(LAST_MODIFIED_ATTRIBUTE);
+        if (cached != null) {
+            return cached;
+        }
+        long lastModified = -1;
+        PageHandler pageHandler = getPageHandler(getPageName(request.getRequestURI()));
+        if (pageHandler instanceof CacheablePageHandler) {
+            try {
+                lastModified = ((CacheablePageHandler) pageHandler).getLastModified(getPageUrl(request));
+                if (lastModified >= 0) {
+                    // pages render menus of this instance too
+                    lastModified = Math.max(lastModified, start) / 1000 * 1000;
+                }
+            } catch (Throwable t) {
+                logger.warn(t.getMessage(), t);
+            }
+        }
+        request.setAttribute(LAST_MODIFIED_ATTRIBUTE, lastModified);
+        return lastModified;
     }
 
     @Override
     protected final void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        long lastModified = getLastModified(request);
+        if (lastModified >= 0) {
+            String etag = "W/\"" + Long.toHexString(lastModified) + "\"";
+            response.setHeader("ETag", etag);
+            if (etag.equals(request.getHeader("If-None-Match"))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
         doPost(request, response);
     }
 
@@ -93,84 +173,93 @@ public class PageServlet extends HttpServlet {
     protected final void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         if (!response.isCommitted()) {
-            PrintWriter writer = response.getWriter();
             String uri = request.getRequestURI();
-            boolean isHtml = false;
-            if (uri == null || uri.length() == 0 || "/".equals(uri)) {
-                uri = "index";
-                isHtml = true;
-            } else {
-                if (uri.startsWith("/")) {
-                    uri = uri.substring(1);
-                }
-                if (uri.endsWith(".html")) {
-                    uri = uri.substring(0, uri.length() - ".html".length());
-                    isHtml = true;
-                }
-            }
+            boolean isHtml = uri == null || uri.length() == 0 || "/".equals(uri) || uri.endsWith(".html");
+            uri = getPageName(uri);
             if (uri.endsWith("favicon.ico")) {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
                 return;
             }
-            ExtensionLoader<PageHandler> pageHandlerLoader = ExtensionLoader.getExtensionLoader(PageHandler.class);
-            PageHandler pageHandler = pageHandlerLoader.hasExtension(uri) ? pageHandlerLoader.getExtension(uri) : null;
-            if (isHtml) {
-                writer.println("<html><head><title>Dubbo</title>");
-                writer.println("<style type=\"text/css\">html, body {margin: 10;padding: 0;background-color: #6D838C;font-family: Arial, Verdana;font-size: 12px;color: #FFFFFF;text-align: center;vertical-align: middle;word-break: break-all; } table {width: 90%; margin: 0px auto;border-collapse: collapse;border: 8px solid #FFFFFF; } thead tr {background-color: #253c46; } tbody tr {background-color: #8da5af; } th {padding-top: 4px;padding-bottom: 4px;font-size: 14px;height: 20px; } td {margin: 3px;padding: 3px;border: 2px solid #FFFFFF;font-size: 14px;height: 25px; } a {color: #FFFFFF;cursor: pointer;text-decoration: underline; } a:hover {text-decoration: none; }</style>");
-                writer.println("</head><body>");
-            }
+            PageHandler pageHandler = getPageHandler(uri);
+            PageTask task = null;
             if (pageHandler != null) {
-                Page page = null;
-                try {
-                    String query = request.getQueryString();
-                    page = pageHandler.handle(URL.valueOf(request.getRequestURL().toString()
-                            + (query == null || query.length() == 0 ? "" : "?" + query)));
-                } catch (Throwable t) {
+                if (executor != null && asyncPages.contains(uri)) {
+                    // may suspend the request and throw RetryRequest, so nothing must be written before
+                    task = handleAsync(request, pageHandler);
+                } else {
+                    task = new PageTask(pageHandler, getPageUrl(request));
+                    task.run();
+                }
+                if (task.rejected) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } else if (task.timeout) {
+                    response.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                }
+            }
+            response.setContentType(isHtml ? "text/html; charset=UTF-8" : "text/plain; charset=UTF-8");
+            response.setHeader("Vary", "Accept-Encoding");
+            OutputStream output = response.getOutputStream();
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1) {
+                response.setHeader("Content-Encoding", "gzip");
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output, "UTF-8"), BUFFER_SIZE));
+            try {
+                writePage(request, writer, uri, isHtml, pageHandler, task);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Run the handler of a slow page on the page executor and suspend the request until it is done or timeout.
+     */
+    private PageTask handleAsync(HttpServletRequest request, PageHandler pageHandler) {
+        PageTask task = (PageTask) request.getAttribute(TASK_ATTRIBUTE);
+        if (task == null) {
+            task = new PageTask(pageHandler, getPageUrl(request));
+            try {
+                task.future = executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                task.reject();
+                return task;
+            }
+            request.setAttribute(TASK_ATTRIBUTE, task);
+        }
+        // the task is the mutex, so blocking connectors wait on it and the resume can not get lost
+        Continuation continuation = ContinuationSupport.getContinuation(request, task);
+        synchronized (task) {
+            task.continuation = continuation;
+            if (!task.done || continuation.isPending()) {
+                continuation.suspend(pageTimeout);
+            }
+            if (!task.done) {
+                task.cancel(pageTimeout);
+            }
+        }
+        return task;
+    }
+
+    private void writePage(HttpServletRequest request, PrintWriter writer, String uri, boolean isHtml,
+                           PageHandler pageHandler, PageTask task) {
+        if (isHtml) {
+            writer.println("<html><head><title>Dubbo</title>");
+            writer.println("<link rel=\"stylesheet\" type=\"text/css\" href=\"/monitor.css\" />");
+            writer.println("</head><body>");
+        }
+        if (pageHandler != null) {
+            Page page = task.page;
+            Throwable t = task.error;
+            if (t != null) {
+                if (!task.rejected && !task.timeout) {
                     logger.warn(t.getMessage(), t);
-                    String msg = t.getMessage();
-                    if (msg == null) {
-                        msg = StringUtils.toString(t);
-                    }
-                    if (isHtml) {
-                        writer.println("<table>");
-                        writer.println("<thead>");
-                        writer.println("    <tr>");
-                        writer.println("        <th>Error</th>");
-                        writer.println("    </tr>");
-                        writer.println("</thead>");
-                        writer.println("<tbody>");
-                        writer.println("    <tr>");
-                        writer.println("        <td>");
-                        writer.println("            " + msg.replace("<", "&lt;").replace(">", "&lt;").replace("\n", "<br/>"));
-                        writer.println("        </td>");
-                        writer.println("    </tr>");
-                        writer.println("</tbody>");
-                        writer.println("</table>");
-                        writer.println("<br/>");
-                    } else {
-                        writer.println(msg);
-                    }
                 }
-                if (page != null) {
-                    if (isHtml) {
-                        String nav = page.getNavigation();
-                        if (nav == null || nav.length() == 0) {
-                            nav = ExtensionLoader.getExtensionLoader(PageHandler.class).getExtensionName(pageHandler);
-                            nav = nav.substring(0, 1).toUpperCase() + nav.substring(1);
-                        }
-                        if (!"index".equals(uri)) {
-                            nav = "<a href=\"/\">Home</a> &gt; " + nav;
-                        }
-                        writeMenu(request, writer, nav);
-                        writeTable(writer, page.getTitle(), page.getColumns(),
-                                page.getRows());
-                    } else {
-                        if (page.getRows().size() > 0 && page.getRows().get(0).size() > 0) {
-                            writer.println(page.getRows().get(0).get(0));
-                        }
-                    }
+                String msg = t.getMessage();
+                if (msg == null) {
+                    msg = StringUtils.toString(t);
                 }
-            } else {
                 if (isHtml) {
                     writer.println("<table>");
                     writer.println("<thead>");
@@ -181,21 +270,88 @@ public class PageServlet extends HttpServlet {
                     writer.println("<tbody>");
                     writer.println("    <tr>");
                     writer.println("        <td>");
-                    writer.println("            Not found " + uri + " page. Please goto <a href=\"/\">Home</a> page.");
+                    writer.println("            " + msg.replace("<", "&lt;").replace(">", "&lt;").replace("\n", "<br/>"));
                     writer.println("        </td>");
                     writer.println("    </tr>");
                     writer.println("</tbody>");
                     writer.println("</table>");
                     writer.println("<br/>");
                 } else {
-                    writer.println("Not found " + uri + " page.");
+                    writer.println(msg);
                 }
             }
+            if (page != null) {
+                if (isHtml) {
+                    String nav = page.getNavigation();
+                    if (nav == null || nav.length() == 0) {
+                        nav = ExtensionLoader.getExtensionLoader(PageHandler.class).getExtensionName(pageHandler);
+                        nav = nav.substring(0, 1).toUpperCase() + nav.substring(1);
+                    }
+                    if (!"index".equals(uri)) {
+                        nav = "<a href=\"/\">Home</a> &gt; " + nav;
+                    }
+                    writeMenu(request, writer, nav);
+                    writeTable(request, writer, page);
+                } else {
+                    final PrintWriter out = writer;
+                    page.getRowSource().write(new RowWriter() {
+                        public boolean write(List<String> row) {
+                            if (row.size() > 0) {
+                                out.println(row.get(0));
+                            }
+                            return false;
+                        }
+                    });
+                }
+            }
+        } else {
             if (isHtml) {
-                writer.println("</body></html>");
+                writer.println("<table>");
+                writer.println("<thead>");
+                writer.println("    <tr>");
+                writer.println("        <th>Error</th>");
+                writer.println("    </tr>");
+                writer.println("</thead>");
+                writer.println("<tbody>");
+                writer.println("    <tr>");
+                writer.println("        <td>");
+                writer.println("            Not found " + uri + " page. Please goto <a href=\"/\">Home</a> page.");
+                writer.println("        </td>");
+                writer.println("    </tr>");
+                writer.println("</tbody>");
+                writer.println("</table>");
+                writer.println("<br/>");
+            } else {
+                writer.println("Not found " + uri + " page.");
             }
-            writer.flush();
         }
+        if (isHtml) {
+            writer.println("</body></html>");
+        }
+    }
+
+    private String getPageName(String uri) {
+        if (uri == null || uri.length() == 0 || "/".equals(uri)) {
+            return "index";
+        }
+        if (uri.startsWith("/")) {
+            uri = uri.substring(1);
+        }
+        if (uri.endsWith(".html")) {
+            uri = uri.substring(0, uri.length() - ".html".length());
+        }
+        return uri;
+    }
+
+    private PageHandler getPageHandler(String name) {
+        ExtensionLoader<PageHandler> pageHandlerLoader = ExtensionLoader.getExtensionLoader(PageHandler.class);
+        return pageHandlerLoader.hasExtension(name) ? pageHandlerLoader.getExtension(name) : null;
+    }
+
+    private URL getPageUrl(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return URL.valueOf(request.getRequestURL().toString()
+                + (query == null || query.length() == 0 ? "" : "?" + query));
     }
 
     protected final void writeMenu(HttpServletRequest request, PrintWriter writer, String nav) {
@@ -220,63 +376,211 @@ public class PageServlet extends HttpServlet {
         writer.println("<br/>");
     }
 
-    protected final void writeTable(PrintWriter writer, String title, List<String> columns,
-                                    List<List<String>> rows) {
-        int n = random.nextInt();
-        int c = (columns == null ? (rows == null || rows.size() == 0 ? 0 : rows.get(0).size())
+    protected final void writeTable(HttpServletRequest request, final PrintWriter writer, Page page) {
+        final List<String> columns = page.getColumns();
+        List<List<String>> rows = page.getRows();
+        int c = (columns == null ? (rows == null || rows.size() == 0 ? 1 : rows.get(0).size())
                 : columns.size());
-        int r = (rows == null ? 0 : rows.size());
+        final String[] filters = new String[columns == null ? 0 : columns.size()];
+        boolean filterable = false;
+        for (int i = 0; i < filters.length; i++) {
+            if (columns.get(i).endsWith(":")) {
+                String filter = request.getParameter(FILTER_PREFIX + i);
+                filters[i] = filter == null || filter.length() == 0 ? null : filter;
+                filterable = true;
+            }
+        }
+        final int size = getIntParameter(request, "size", DEFAULT_PAGE_SIZE);
+        final int pageNo = Math.max(1, getIntParameter(request, "page", 1));
+        final int from = size > 0 ? (pageNo - 1) * size : 0;
+        final int to = size > 0 ? from + size : Integer.MAX_VALUE;
+        if (filterable) {
+            writer.println("<form method=\"get\">");
+            for (Map.Entry<String, String[]> entry : getParameterMap(request).entrySet()) {
+                String name = entry.getKey();
+                if (!name.startsWith(FILTER_PREFIX) && !"page".equals(name)) {
+                    for (String value : entry.getValue()) {
+                        writer.println("<input type=\"hidden\" name=\"" + escape(name) + "\" value=\"" + escape(value) + "\" />");
+                    }
+                }
+            }
+        }
         writer.println("<table>");
         writer.println("<thead>");
         writer.println("    <tr>");
-        writer.println("        <th colspan=\"" + c + "\">" + title + "</th>");
+        writer.println("        <th colspan=\"" + c + "\">" + page.getTitle()
+                + (filterable ? " <input type=\"submit\" value=\"Filter\" />" : "") + "</th>");
         writer.println("    </tr>");
         if (columns != null && columns.size() > 0) {
             writer.println("    <tr>");
             for (int i = 0; i < columns.size(); i++) {
                 String col = columns.get(i);
                 if (col.endsWith(":")) {
-                    col += " <input type=\"text\" id=\"in_"
-                            + n
-                            + "_"
-                            + i
-                            + "\" onkeyup=\"for (var i = 0; i < "
-                            + r
-                            + "; i ++) { var m = true; for (var j = 0; j < "
-                            + columns.size()
-                            + "; j ++) { if (document.getElementById('in_"
-                            + n
-                            + "_' + j)) { var iv = document.getElementById('in_"
-                            + n
-                            + "_' + j).value; var tv = document.getElementById('td_"
-                            + n
-                            + "_' + i + '_' + j).innerHTML; if (iv.length > 0 && (tv.length < iv.length || tv.indexOf(iv) == -1)) { m = false; break; } } } document.getElementById('tr_"
-                            + n
-                            + "_' + i).style.display = (m ? '' : 'none');}\" sytle=\"width: 100%\" />";
+                    col += " <input type=\"text\" name=\"" + FILTER_PREFIX + i + "\" value=\""
+                            + (filters[i] == null ? "" : escape(filters[i])) + "\" style=\"width: 60%\" />";
                 }
                 writer.println("        <td>" + col + "</td>");
             }
             writer.println("    </tr>");
         }
         writer.println("</thead>");
-        if (rows != null && rows.size() > 0) {
-            writer.println("<tbody>");
-            int i = 0;
-            for (Collection<String> row : rows) {
-                writer.println("    <tr id=\"tr_" + n + "_" + i + "\">");
-                int j = 0;
-                for (String col : row) {
-                    writer.println("        <td id=\"td_" + n + "_" + i + "_" + j
-                            + "\" style=\"display: ;\">" + col + "</td>");
-                    j++;
+        final int[] matched = new int[1];
+        page.getRowSource().write(new RowWriter() {
+            public boolean write(List<String> row) {
+                for (int j = 0; j < filters.length && j < row.size(); j++) {
+                    if (filters[j] != null && getText(row.get(j)).indexOf(filters[j]) == -1) {
+                        return true;
+                    }
                 }
-                writer.println("    </tr>");
-                i++;
+                int index = matched[0]++;
+                if (index >= from && index < to) {
+                    if (index == from) {
+                        writer.println("<tbody>");
+                    }
+                    writer.println("    <tr>");
+                    for (String col : row) {
+                        writer.print("        <td>");
+                        writer.print(col);
+                        writer.println("</td>");
+                    }
+                    writer.println("    </tr>");
+                }
+                return true;
             }
+        });
+        if (matched[0] > from) {
             writer.println("</tbody>");
         }
+        if (size > 0 && (matched[0] > size || pageNo > 1)) {
+            int pages = (matched[0] + size - 1) / size;
+            writer.println("<tfoot>");
+            writer.println("    <tr>");
+            writer.print("        <td colspan=\"" + c + "\">");
+            if (pageNo > 1) {
+                writer.print("<a href=\"" + pageUri(request, pageNo - 1) + "\">&lt; Prev</a> ");
+            }
+            writer.print("Page " + pageNo + " of " + pages + " (" + matched[0] + " rows)");
+            if (pageNo < pages) {
+                writer.print(" <a href=\"" + pageUri(request, pageNo + 1) + "\">Next &gt;</a>");
+            }
+            writer.println("</td>");
+            writer.println("    </tr>");
+            writer.println("</tfoot>");
+        }
         writer.println("</table>");
+        if (filterable) {
+            writer.println("</form>");
+        }
         writer.println("<br/>");
     }
 
-}
\ No newline at end of file
+    private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value != null && value.length() > 0) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String[]> getParameterMap(HttpServletRequest request) {
+        return new TreeMap<String, String[]>(request.getParameterMap());
+    }
+
+    private static String pageUri(HttpServletRequest request, int pageNo) {
+        StringBuilder buf = new StringBuilder(request.getRequestURI()).append("?");
+        for (Map.Entry<String, String[]> entry : getParameterMap(request).entrySet()) {
+            if (!"page".equals(entry.getKey())) {
+                for (String value : entry.getValue()) {
+                    buf.append(URL.encode(entry.getKey())).append("=").append(URL.encode(value)).append("&amp;");
+                }
+            }
+        }
+        return buf.append("page=").append(pageNo).toString();
+    }
+
+    /**
+     * @return the text a cell shows, without its markup
+     */
+    static String getText(String html) {
+        if (html == null || html.indexOf('<') == -1 && html.indexOf('&') == -1) {
+            return html;
+        }
+        return TAG_PATTERN.matcher(html).replaceAll("").replace("&nbsp;", " ").replace("&lt;", "<")
+                .replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * PageTask
+     */
+    private static class PageTask implements Runnable {
+
+        private final PageHandler handler;
+
+        private final URL url;
+
+        private volatile Page page;
+
+        private volatile Throwable error;
+
+        private volatile boolean done;
+
+        private volatile boolean rejected;
+
+        private volatile boolean timeout;
+
+        private Future<?> future;
+
+        private Continuation continuation;
+
+        PageTask(PageHandler handler, URL url) {
+            this.handler = handler;
+            this.url = url;
+        }
+
+        public void run() {
+            Page result = null;
+            Throwable failure = null;
+            try {
+                result = handler.handle(url);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                synchronized (this) {
+                    // a cancelled task keeps its timeout error
+                    if (!timeout) {
+                        page = result;
+                        error = failure;
+                    }
+                    done = true;
+                    if (continuation != null) {
+                        continuation.resume();
+                    }
+                }
+            }
+        }
+
+        void reject() {
+            rejected = true;
+            error = new IllegalStateException("Too many slow pages in progress, please retry later.");
+        }
+
+        void cancel(long timeoutMillis) {
+            if (future != null) {
+                future.cancel(true);
+            }
+            timeout = true;
+            error = new IllegalStateException("Page " + url.getPath() + " not finished in " + timeoutMillis + "ms, cancelled.");
+        }
+
+    }
+
+}
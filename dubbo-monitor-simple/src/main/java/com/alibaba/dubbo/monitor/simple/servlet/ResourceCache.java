@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.servlet;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ResourceCache
+ * <p>
+ * Resolves request uris against the resource roots and keeps the small ones in memory, least recently used
+ * first out when the cache is over its byte capacity. File resources are validated against their mtime and
+ * length at most once per validate interval, misses are cached as well so pages do not probe every root.
+ */
+class ResourceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceCache.class);
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=UTF-8");
+        CONTENT_TYPES.put("htm", "text/html; charset=UTF-8");
+        CONTENT_TYPES.put("css", "text/css; charset=UTF-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=UTF-8");
+        CONTENT_TYPES.put("json", "application/json; charset=UTF-8");
+        CONTENT_TYPES.put("xml", "text/xml; charset=UTF-8");
+        CONTENT_TYPES.put("txt", "text/plain; charset=UTF-8");
+        CONTENT_TYPES.put("log", "text/plain; charset=UTF-8");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+    }
+
+    private final long start = System.currentTimeMillis();
+
+    private final List<String> roots;
+
+    private final long capacity;
+
+    private final int maxEntrySize;
+
+    private final long validateInterval;
+
+    private final LinkedHashMap<String, Resource> resources = new LinkedHashMap<String, Resource>(64, 0.75f, true);
+
+    private long size;
+
+    ResourceCache(List<String> roots, long capacity, int maxEntrySize, long validateInterval) {
+        this.roots = roots;
+        this.capacity = capacity;
+        this.maxEntrySize = maxEntrySize;
+        this.validateInterval = validateInterval;
+    }
+
+    /**
+     * Get a resource.
+     *
+     * @param uri request uri, starting with /
+     * @return the resource, or null if no root has it.
+     */
+    Resource get(String uri) {
+        if (uri.contains("..")) {
+            return null;
+        }
+        Resource resource;
+        synchronized (this) {
+            resource = resources.get(uri);
+        }
+        long now = System.currentTimeMillis();
+        if (resource != null) {
+            if (now - resource.checked < validateInterval || resource.exists && resource.file == null) {
+                return resource.exists ? resource : null;
+            }
+            if (resource.exists && resource.file.lastModified() == resource.lastModified
+                    && resource.file.length() == resource.length) {
+                resource.checked = now;
+                return resource;
+            }
+        }
+        resource = load(uri, now);
+        synchronized (this) {
+            Resource old = resources.put(uri, resource);
+            if (old != null) {
+                size -= old.getWeight();
+            }
+            size += resource.getWeight();
+            Iterator<Resource> iterator = resources.values().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                Resource eldest = iterator.next();
+                if (eldest != resource) {
+                    size -= eldest.getWeight();
+                    iterator.remove();
+                }
+            }
+        }
+        return resource.exists ? resource : null;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized int getCount() {
+        return resources.size();
+    }
+
+    private Resource load(String uri, long now) {
+        for (String root : roots) {
+            String path = root + uri;
+            try {
+                if (isFile(path)) {
+                    File file = new File(path);
+                    if (file.isFile()) {
+                        long lastModified = file.lastModified();
+                        long length = file.length();
+                        byte[] data = null;
+                        if (length <= maxEntrySize) {
+                            InputStream input = new FileInputStream(file);
+                            try {
+                                data = read(input);
+                            } finally {
+                                input.close();
+                            }
+                        }
+                        return new Resource(uri, file, null, lastModified, data == null ? length : data.length, data, now);
+                    }
+                } else {
+                    URL url = path.startsWith(CLASSPATH_PREFIX)
+                            ? Thread.currentThread().getContextClassLoader().getResource(path.substring(CLASSPATH_PREFIX.length()))
+                            : new URL(path);
+                    if (url != null && !url.getPath().endsWith("/")) {
+                        InputStream input = url.openStream();
+                        try {
+                            // remote and classpath resources do not change while running
+                            byte[] data = read(input, maxEntrySize + 1);
+                            if (data.length > maxEntrySize) {
+                                return new Resource(uri, null, url, start, -1, null, now);
+                            }
+                            return new Resource(uri, null, url, start, data.length, data, now);
+                        } finally {
+                            input.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Failed to load " + path + ", cause: " + e.getMessage());
+            }
+        }
+        return new Resource(uri, now);
+    }
+
+    private static boolean isFile(String path) {
+        return path.startsWith("/") || path.indexOf(":") <= 1;
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        return read(input, Integer.MAX_VALUE);
+    }
+
+    private static byte[] read(InputStream input, int limit) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while (output.size() < limit && -1 != (n = input.read(buffer))) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    static String getContentType(String uri) {
+        int i = uri.lastIndexOf('.');
+        String type = i < 0 ? null : CONTENT_TYPES.get(uri.substring(i + 1).toLowerCase());
+        return type == null ? "application/octet-stream" : type;
+    }
+
+    /**
+     * Resource
+     */
+    static class Resource {
+
+        private final String uri;
+
+        private final boolean exists;
+
+        private final File file;
+
+        private final URL url;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final byte[] data;
+
+        private final byte[] gzip;
+
+        private final String etag;
+
+        private final String gzipEtag;
+
+        private final String contentType;
+
+        private volatile long checked;
+
+        private Resource(String uri, long checked) {
+            this.uri = uri;
+            this.exists = false;
+            this.file = null;
+            this.url = null;
+            this.lastModified = -1;
+            this.length = 0;
+            this.data = null;
+            this.gzip = null;
+            this.etag = null;
+            this.gzipEtag = null;
+            this.contentType = null;
+            this.checked = checked;
+        }
+
+        private Resource(String uri, File file, URL url, long lastModified, long length, byte[] data, long checked) {
+            this.uri = uri;
+            this.exists = true;
+            this.file = file;
+            this.url = url;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.data = data;
+            this.contentType = ResourceCache.getContentType(uri);
+            this.gzip = data != null && isText(contentType) ? compress(data) : null;
+            this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+            this.gzipEtag = gzip == null ? null : etag.substring(0, etag.length() - 1) + "-gzip\"";
+            this.checked = checked;
+        }
+
+        private static boolean isText(String contentType) {
+            return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                    || contentType.startsWith("application/json") || contentType.startsWith("image/svg");
+        }
+
+        private static byte[] compress(byte[] data) {
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+                GZIPOutputStream gzip = new GZIPOutputStream(output);
+                gzip.write(data);
+                gzip.close();
+                return output.size() < data.length ? output.toByteArray() : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private long getWeight() {
+            return ENTRY_OVERHEAD + uri.length() * 2 + (data == null ? 0 : data.length) + (gzip == null ? 0 : gzip.length);
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the length, or -1 if unknown.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return the content, or null if the resource is too large to be cached.
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @return the gzip compressed content, or null if not compressible.
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the etag of the gzip compressed content, a different representation than the identity one.
+         */
+        public String getGzipEtag() {
+            return gzipEtag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.alibaba.dubbo.monitor.simple.servlet;
 
 import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -26,13 +27,13 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -41,12 +42,12 @@ import java.util.List;
  */
 public class ResourceFilter implements Filter {
 
-    private static final String CLASSPATH_PREFIX = "classpath:";
-
-    private final long start = System.currentTimeMillis();
+    private static final long[] UNSATISFIABLE = new long[0];
 
     private final List<String> resources = new ArrayList<String>();
 
+    private ResourceCache cache;
+
     public void init(FilterConfig filterConfig) throws ServletException {
         String config = filterConfig.getInitParameter("resources");
         if (config != null && config.length() > 0) {
@@ -61,6 +62,10 @@ public class ResourceFilter implements Filter {
                 }
             }
         }
+        cache = new ResourceCache(resources,
+                Long.parseLong(ConfigUtils.getProperty("dubbo.monitor.resource-cache-size", String.valueOf(16 * 1024 * 1024))),
+                Integer.parseInt(ConfigUtils.getProperty("dubbo.monitor.resource-cache-entry-size", String.valueOf(256 * 1024))),
+                Long.parseLong(ConfigUtils.getProperty("dubbo.monitor.resource-validate-interval", "1000")));
     }
 
     public void destroy() {
@@ -83,69 +88,159 @@ public class ResourceFilter implements Filter {
         if (!uri.startsWith("/")) {
             uri = "/" + uri;
         }
-        long lastModified = getLastModified(uri);
-        long since = request.getDateHeader("If-Modified-Since");
-        if (since >= lastModified) {
-            response.sendError(HttpServletResponse.SC_NOT_MODIFIED);
+        ResourceCache.Resource resource = cache.get(uri);
+        if (resource == null) {
+            chain.doFilter(req, res);
             return;
         }
-        byte[] data;
-        InputStream input = getInputStream(uri);
-        if (input == null) {
-            chain.doFilter(req, res);
+        long lastModified = resource.getLastModified() / 1000 * 1000;
+        boolean gzip = resource.getGzip() != null && acceptsGzip(request);
+        String etag = gzip ? resource.getGzipEtag() : resource.getEtag();
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setContentType(resource.getContentType());
+        if (resource.getGzip() != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null ? matches(ifNoneMatch, etag)
+                : request.getDateHeader("If-Modified-Since") >= lastModified) {
+            response.setHeader("ETag", etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             return;
         }
-        try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            byte[] buffer = new byte[8192];
-            int n = 0;
-            while (-1 != (n = input.read(buffer))) {
-                output.write(buffer, 0, n);
+        long length = resource.getLength();
+        long offset = 0;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        // ranges are served from the identity content only
+        if (range != null && length >= 0 && (ifRange == null || ifRange.equals(resource.getEtag()))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                gzip = false;
+                etag = resource.getEtag();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + length);
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
             }
-            data = output.toByteArray();
-        } finally {
-            input.close();
         }
-        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("ETag", etag);
+        byte[] data = resource.getData();
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            data = resource.getGzip();
+            length = data.length;
+        }
+        if (length >= 0) {
+            response.setHeader("Content-Length", String.valueOf(length));
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
         OutputStream output = response.getOutputStream();
-        output.write(data);
+        if (data != null) {
+            output.write(data, (int) offset, (int) length);
+        } else if (resource.getFile() != null) {
+            transfer(resource, offset, length, output);
+        } else {
+            InputStream input = resource.getUrl().openStream();
+            try {
+                byte[] buffer = new byte[8192];
+                int n;
+                while (-1 != (n = input.read(buffer))) {
+                    output.write(buffer, 0, n);
+                }
+            } finally {
+                input.close();
+            }
+        }
         output.flush();
     }
 
-    private boolean isFile(String path) {
-        return path.startsWith("/") || path.indexOf(":") <= 1;
+    /**
+     * Parse a single byte range, multiple ranges are answered with the whole content.
+     *
+     * @return the first and last byte, null to ignore the range, or {@link #UNSATISFIABLE}.
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int i = spec.indexOf('-');
+        if (i < 0) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (i == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, i));
+                last = i == spec.length() - 1 ? length - 1 : Math.min(length - 1, Long.parseLong(spec.substring(i + 1)));
+                if (last < first) {
+                    return first >= length ? UNSATISFIABLE : null;
+                }
+            }
+            if (first >= length) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
-    private long getLastModified(String uri) {
-        for (String resource : resources) {
-            if (resource != null && resource.length() > 0) {
-                String path = resource + uri;
-                if (isFile(path)) {
-                    File file = new File(path);
-                    if (file.exists()) {
-                        return file.lastModified();
-                    }
-                }
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String tag : Constants.COMMA_SPLIT_PATTERN.split(ifNoneMatch)) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
             }
         }
-        return start;
+        return false;
     }
 
-    private InputStream getInputStream(String uri) {
-        for (String resource : resources) {
-            String path = resource + uri;
-            try {
-                if (isFile(path)) {
-                    return new FileInputStream(path);
-                } else if (path.startsWith(CLASSPATH_PREFIX)) {
-                    return Thread.currentThread().getContextClassLoader().getResourceAsStream(path.substring(CLASSPATH_PREFIX.length()));
-                } else {
-                    return new URL(path).openStream();
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1;
+    }
+
+    /**
+     * Copies the file through FileChannel.transferTo. The servlet output stream is not a channel, so this is
+     * a buffered copy in user space, not a zero copy send, it only saves reading the file into the heap.
+     */
+    private static void transfer(ResourceCache.Resource resource, long offset, long length, OutputStream output) throws IOException {
+        FileInputStream input = new FileInputStream(resource.getFile());
+        try {
+            FileChannel channel = input.getChannel();
+            WritableByteChannel target = Channels.newChannel(output);
+            long end = Math.min(offset + length, channel.size());
+            while (offset < end) {
+                long n = channel.transferTo(offset, end - offset, target);
+                if (n <= 0) {
+                    break;
                 }
-            } catch (IOException e) {
+                offset += n;
             }
+        } finally {
+            input.close();
         }
-        return null;
     }
 
-}
\ No newline at end of file
+}
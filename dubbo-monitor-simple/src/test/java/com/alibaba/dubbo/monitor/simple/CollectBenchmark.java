@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CollectBenchmark
+ * <p>
+ * Compares collecting statistics one URL per call with {@link StatisticsBatch}es. Each sample goes
+ * through hessian2 as it would over the dubbo protocol; the samples counter is the throughput to
+ * compare, the bytes counter the payload on the wire.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CollectBenchmark {
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private File directory;
+
+    private SimpleMonitorService monitorService;
+
+    private StatisticsLoadGenerator generator;
+
+    private Serialization serialization;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CollectBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.ERROR);
+        directory = File.createTempFile("dubbo-monitor", "");
+        directory.delete();
+        System.setProperty("dubbo.statistics.directory", new File(directory, "statistics").getAbsolutePath());
+        System.setProperty("dubbo.charts.directory", new File(directory, "charts").getAbsolutePath());
+        System.setProperty("dubbo.monitor.draw-interval", String.valueOf(Long.MAX_VALUE / 2));
+        monitorService = new SimpleMonitorService();
+        generator = new StatisticsLoadGenerator(10, 5, 10, 10);
+        serialization = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension("hessian2");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        monitorService.close();
+        SimpleMonitorServiceBenchmark.delete(directory);
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutput output = serialization.serialize(null, bytes);
+        output.writeObject(value);
+        output.flushBuffer();
+        return bytes.toByteArray();
+    }
+
+    private <T> T deserialize(byte[] bytes, Class<T> type) throws Exception {
+        return serialization.deserialize(null, new ByteArrayInputStream(bytes)).readObject(type);
+    }
+
+    @Benchmark
+    public void single(CollectCounters counters) throws Exception {
+        for (int i = 0; i < batchSize; i++) {
+            byte[] bytes = serialize(generator.next());
+            monitorService.collect(deserialize(bytes, URL.class));
+            counters.bytes += bytes.length;
+        }
+        counters.samples += batchSize;
+    }
+
+    @Benchmark
+    public void batch(CollectCounters counters) throws Exception {
+        byte[] bytes = serialize(generator.nextBatch(batchSize));
+        monitorService.collect(deserialize(bytes, StatisticsBatch.class));
+        counters.bytes += bytes.length;
+        counters.samples += batchSize;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class CollectCounters {
+
+        public long samples;
+
+        public long bytes;
+
+    }
+
+}
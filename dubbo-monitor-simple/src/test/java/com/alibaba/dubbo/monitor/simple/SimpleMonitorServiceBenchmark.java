@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.NetUtils;
+import com.alibaba.dubbo.monitor.simple.common.Page;
+import com.alibaba.dubbo.monitor.simple.pages.StatisticsPageHandler;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SimpleMonitorServiceBenchmark
+ * <p>
+ * Baseline for collect, write, draw and the statistics page. Run {@link #main(String[])} from the
+ * test classpath, the GC profiler reports the allocation rate and the collect benchmark reports
+ * the collected and dropped samples.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SimpleMonitorServiceBenchmark {
+
+    @Param({"10"})
+    public int services;
+
+    @Param({"5"})
+    public int methods;
+
+    @Param({"10"})
+    public int consumers;
+
+    @Param({"10"})
+    public int providers;
+
+    private File directory;
+
+    private SimpleMonitorService monitorService;
+
+    private StatisticsLoadGenerator generator;
+
+    private URL statisticsPage;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SimpleMonitorServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.ERROR);
+        directory = File.createTempFile("dubbo-monitor", "");
+        directory.delete();
+        System.setProperty("dubbo.statistics.directory", new File(directory, "statistics").getAbsolutePath());
+        System.setProperty("dubbo.charts.directory", new File(directory, "charts").getAbsolutePath());
+        System.setProperty("dubbo.monitor.draw-interval", String.valueOf(Long.MAX_VALUE / 2));
+        monitorService = new SimpleMonitorService();
+        generator = new StatisticsLoadGenerator(services, methods, consumers, providers);
+        for (URL url : generator.generate(generator.size())) {
+            monitorService.write(url);
+        }
+        monitorService.draw();
+        statisticsPage = URL.valueOf("http://" + NetUtils.LOCALHOST + "/statistics.html?service="
+                + StatisticsLoadGenerator.getService(0) + "&date=" + new SimpleDateFormat("yyyyMMdd").format(new Date()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        monitorService.close();
+        delete(directory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void collect(CollectCounters counters) {
+        long dropped = monitorService.getDroppedCount();
+        monitorService.collect(generator.next());
+        counters.collected++;
+        counters.dropped += monitorService.getDroppedCount() - dropped;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void write() throws Exception {
+        monitorService.write(generator.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void draw(ChartState state) {
+        monitorService.draw();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Page statisticsPage() {
+        return new StatisticsPageHandler().handle(statisticsPage);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CollectCounters {
+
+        public long collected;
+
+        public long dropped;
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class ChartState {
+
+        /**
+         * Whether every chart is redrawn, or only the statistics tree is scanned.
+         */
+        @Param({"false", "true"})
+        public boolean redraw;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            if (redraw) {
+                delete(new File(System.getProperty("dubbo.charts.directory")));
+            }
+        }
+
+    }
+
+}
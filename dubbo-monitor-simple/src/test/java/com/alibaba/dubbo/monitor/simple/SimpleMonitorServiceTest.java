@@ -17,10 +17,26 @@
 package com.alibaba.dubbo.monitor.simple;
 
 import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.extension.ExtensionLoader;
+import com.alibaba.dubbo.common.serialize.ObjectInput;
+import com.alibaba.dubbo.common.serialize.ObjectOutput;
+import com.alibaba.dubbo.common.serialize.Serialization;
 import com.alibaba.dubbo.common.utils.NetUtils;
+import com.alibaba.dubbo.monitor.MonitorService;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * SimpleMonitorServiceTest
  */
@@ -31,4 +47,118 @@ public class SimpleMonitorServiceTest {
         new SimpleMonitorService().collect(new URL("dubbo", NetUtils.getLocalHost(), 0));
     }
 
+    @Test
+    public void testCollectBatch() throws Exception {
+        StatisticsLoadGenerator generator = new StatisticsLoadGenerator(2, 2, 2, 2);
+        List<URL> urls = generator.generate(4);
+        StatisticsBatch batch = StatisticsLoadGenerator.toBatch(urls);
+        Serialization serialization = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension("hessian2");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutput output = serialization.serialize(null, bytes);
+        output.writeObject(batch);
+        output.flushBuffer();
+        ObjectInput input = serialization.deserialize(null, new ByteArrayInputStream(bytes.toByteArray()));
+        batch = input.readObject(StatisticsBatch.class);
+        Assert.assertEquals(4, batch.size());
+        for (int i = 0; i < urls.size(); i++) {
+            URL expected = urls.get(i);
+            URL actual = batch.toURL(i);
+            Assert.assertEquals(expected.getParameter(MonitorService.INTERFACE), actual.getServiceInterface());
+            Assert.assertEquals(expected.getParameter(MonitorService.METHOD), actual.getParameter(MonitorService.METHOD));
+            Assert.assertEquals(expected.getParameter(MonitorService.PROVIDER), actual.getParameter(MonitorService.PROVIDER));
+            Assert.assertEquals(expected.getParameter(MonitorService.CONSUMER), actual.getParameter(MonitorService.CONSUMER));
+            for (String key : StatisticsBatch.VALUE_KEYS) {
+                Assert.assertEquals(expected.getParameter(key), actual.getParameter(key));
+            }
+        }
+        SimpleMonitorService monitorService = new SimpleMonitorService();
+        try {
+            monitorService.collect(batch);
+            Assert.assertEquals(4, monitorService.getMetrics().counter("collect.count").sum());
+        } finally {
+            monitorService.close();
+        }
+    }
+
+    private static Map<String, String> readTree(File dir, String prefix, Map<String, String> files) throws Exception {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    readTree(child, prefix + child.getName() + "/", files);
+                } else {
+                    files.put(prefix + child.getName(), new String(Files.readAllBytes(child.toPath()), "UTF-8"));
+                }
+            }
+        }
+        return files;
+    }
+
+    private static File writeTree(StatisticsBatch batch, boolean asBatch) throws Exception {
+        File directory = File.createTempFile("dubbo-monitor", "");
+        directory.delete();
+        String statisticsDirectory = System.getProperty("dubbo.statistics.directory");
+        System.setProperty("dubbo.statistics.directory", directory.getAbsolutePath());
+        try {
+            SimpleMonitorService monitorService = new SimpleMonitorService();
+            if (asBatch) {
+                monitorService.write(batch);
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    monitorService.write(batch.toURL(i));
+                }
+            }
+            monitorService.close();
+        } finally {
+            if (statisticsDirectory == null) {
+                System.clearProperty("dubbo.statistics.directory");
+            } else {
+                System.setProperty("dubbo.statistics.directory", statisticsDirectory);
+            }
+        }
+        return directory;
+    }
+
+    @Test
+    public void testWriteBatch() throws Exception {
+        StatisticsLoadGenerator generator = new StatisticsLoadGenerator(2, 2, 2, 2);
+        StatisticsBatch batch = StatisticsLoadGenerator.toBatch(generator.generate(generator.size()));
+        File urls = writeTree(batch, false);
+        File batches = writeTree(batch, true);
+        try {
+            Map<String, String> expected = readTree(urls, "", new TreeMap<String, String>());
+            Assert.assertFalse(expected.isEmpty());
+            Assert.assertEquals(expected, readTree(batches, "", new TreeMap<String, String>()));
+        } finally {
+            SimpleMonitorServiceBenchmark.delete(urls);
+            SimpleMonitorServiceBenchmark.delete(batches);
+        }
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        File directory = File.createTempFile("dubbo-monitor", "");
+        directory.delete();
+        String statisticsDirectory = System.getProperty("dubbo.statistics.directory");
+        System.setProperty("dubbo.statistics.directory", directory.getAbsolutePath());
+        try {
+            SimpleMonitorService monitorService = new SimpleMonitorService();
+            StatisticsLoadGenerator generator = new StatisticsLoadGenerator(2, 2, 2, 2);
+            for (URL url : generator.generate(generator.size())) {
+                monitorService.write(url);
+            }
+            monitorService.close();
+            File methodDir = new File(directory, new SimpleDateFormat("yyyyMMdd").format(new Date())
+                    + "/" + StatisticsLoadGenerator.getService(1) + "/" + StatisticsLoadGenerator.getMethod(1));
+            Assert.assertEquals(2, methodDir.list().length);
+        } finally {
+            if (statisticsDirectory == null) {
+                System.clearProperty("dubbo.statistics.directory");
+            } else {
+                System.setProperty("dubbo.statistics.directory", statisticsDirectory);
+            }
+            SimpleMonitorServiceBenchmark.delete(directory);
+        }
+    }
+
 }
\ No newline at end of file
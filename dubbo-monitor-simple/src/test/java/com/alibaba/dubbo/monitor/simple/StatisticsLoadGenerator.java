@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.monitor.MonitorService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StatisticsLoadGenerator
+ * <p>
+ * Produces the statistics URLs that <code>DubboMonitor</code> sends, for services x methods
+ * x consumers x providers series, both from the consumer and the provider side.
+ */
+public class StatisticsLoadGenerator {
+
+    private final int services;
+
+    private final int methods;
+
+    private final int consumers;
+
+    private final int providers;
+
+    private final Random random = new Random(0);
+
+    private long sequence;
+
+    public StatisticsLoadGenerator(int services, int methods, int consumers, int providers) {
+        this.services = services;
+        this.methods = methods;
+        this.consumers = consumers;
+        this.providers = providers;
+    }
+
+    public static String getService(int index) {
+        return "com.alibaba.dubbo.benchmark.DemoService" + index;
+    }
+
+    public static String getMethod(int index) {
+        return "method" + index;
+    }
+
+    private static String getHost(int network, int index) {
+        return "10." + network + "." + (index / 250) + "." + (index % 250 + 1);
+    }
+
+    /**
+     * @return the number of distinct statistics URLs, one per series and side.
+     */
+    public int size() {
+        return services * methods * consumers * providers * 2;
+    }
+
+    public URL next() {
+        long n = sequence++;
+        boolean consumerSide = (n & 1) == 0;
+        n >>>= 1;
+        int provider = (int) (n % providers);
+        n /= providers;
+        int consumer = (int) (n % consumers);
+        n /= consumers;
+        int method = (int) (n % methods);
+        n /= methods;
+        int service = (int) (n % services);
+        return create(getService(service), getMethod(method), getHost(1, consumer), getHost(2, provider), consumerSide);
+    }
+
+    public List<URL> generate(int count) {
+        List<URL> urls = new ArrayList<URL>(count);
+        for (int i = 0; i < count; i++) {
+            urls.add(next());
+        }
+        return urls;
+    }
+
+    /**
+     * @return the next statistics as a batch reported by the node of the first one.
+     */
+    public StatisticsBatch nextBatch(int count) {
+        return toBatch(generate(count));
+    }
+
+    public static StatisticsBatch toBatch(List<URL> urls) {
+        URL first = urls.get(0);
+        StatisticsBatch batch = new StatisticsBatch(first.getParameter(MonitorService.APPLICATION), first.getHost(), first.getPort(),
+                first.getParameter(MonitorService.TIMESTAMP, 0L));
+        for (URL url : urls) {
+            long[] values = new long[StatisticsBatch.VALUE_KEYS.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = url.getParameter(StatisticsBatch.VALUE_KEYS[i], 0L);
+            }
+            boolean consumerSide = url.hasParameter(MonitorService.PROVIDER);
+            batch.add(url.getParameter(MonitorService.INTERFACE), url.getParameter(MonitorService.METHOD),
+                    url.getParameter(consumerSide ? MonitorService.PROVIDER : MonitorService.CONSUMER), consumerSide,
+                    url.getParameter(Constants.GROUP_KEY), url.getParameter(Constants.VERSION_KEY), values);
+        }
+        batch.trimToSize();
+        return batch;
+    }
+
+    /**
+     * Send statistics to the monitor at the given rate.
+     *
+     * @return the number of statistics sent.
+     */
+    public long run(MonitorService monitorService, int ratePerSecond, long duration, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+        long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long sent = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long due = start + sent * interval;
+            if (now < due) {
+                TimeUnit.NANOSECONDS.sleep(due - now);
+            }
+            monitorService.collect(next());
+            sent++;
+        }
+        return sent;
+    }
+
+    private URL create(String service, String method, String consumer, String provider, boolean consumerSide) {
+        int success = random.nextInt(1000);
+        int failure = random.nextInt(10);
+        int elapsed = success * (1 + random.nextInt(50));
+        String remoteKey = consumerSide ? MonitorService.PROVIDER : MonitorService.CONSUMER;
+        String remoteValue = consumerSide ? provider + ":20880" : consumer;
+        return new URL(Constants.COUNT_PROTOCOL, consumerSide ? consumer : provider, consumerSide ? 0 : 20880, service + "/" + method,
+                MonitorService.APPLICATION, "benchmark-" + (consumerSide ? "consumer" : "provider"),
+                MonitorService.INTERFACE, service,
+                MonitorService.METHOD, method,
+                remoteKey, remoteValue,
+                MonitorService.TIMESTAMP, String.valueOf(System.currentTimeMillis()),
+                MonitorService.SUCCESS, String.valueOf(success),
+                MonitorService.FAILURE, String.valueOf(failure),
+                MonitorService.ELAPSED, String.valueOf(elapsed),
+                MonitorService.CONCURRENT, String.valueOf(random.nextInt(20)),
+                MonitorService.MAX_ELAPSED, String.valueOf(elapsed == 0 ? 0 : random.nextInt(500)),
+                MonitorService.MAX_CONCURRENT, String.valueOf(random.nextInt(50)));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CardinalityGuardTest
+ */
+public class CardinalityGuardTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void createLeaf(Path root, String date, String consumer, String provider) throws Exception {
+        Path leaf = root.resolve(date).resolve("FooService").resolve("foo").resolve(consumer).resolve(provider);
+        Files.createDirectories(leaf);
+        Files.createFile(leaf.resolve("success"));
+    }
+
+    @Test
+    public void testEstimate() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100000; i++) {
+            hll.offer("10.0." + (i / 256) + "." + (i % 256));
+        }
+        long estimate = hll.cardinality();
+        Assert.assertTrue("estimate " + estimate, Math.abs(estimate - 100000) < 100000 * 0.1);
+    }
+
+    @Test
+    public void testFold() {
+        CardinalityGuard guard = new CardinalityGuard(2, 0);
+        Assert.assertEquals("10.0.0.1", guard.admit("20180101", "FooService", "foo", "10.0.0.1", "10.0.1.1")[0]);
+        Assert.assertEquals("10.0.0.2", guard.admit("20180101", "FooService", "foo", "10.0.0.2", "10.0.1.2")[0]);
+        Assert.assertEquals(CardinalityGuard.OTHER, guard.admit("20180101", "FooService", "foo", "10.0.0.3", "10.0.1.3")[0]);
+        Assert.assertEquals("10.0.0.1", guard.admit("20180101", "FooService", "foo", "10.0.0.1", "10.0.1.4")[0]);
+        Assert.assertEquals("10.0.0.3", guard.admit("20180101", "FooService", "bar", "10.0.0.3", "10.0.1.3")[0]);
+
+        CardinalityGuard.Series series = null;
+        for (CardinalityGuard.Series s : guard.getSeries()) {
+            if ("foo".equals(s.getMethod())) {
+                series = s;
+            }
+        }
+        Assert.assertNotNull(series);
+        Assert.assertEquals(2, series.getConsumers().getAdmitted());
+        Assert.assertEquals(1, series.getConsumers().getFolded());
+        Assert.assertEquals(3, series.getConsumers().getEstimate());
+        Assert.assertEquals(4, series.getProviders().getEstimate());
+        Assert.assertEquals(0, series.getProviders().getFolded());
+    }
+
+    @Test
+    public void testEvictOldDays() {
+        CardinalityGuard guard = new CardinalityGuard(1, 1);
+        guard.admit("20180101", "FooService", "foo", "10.0.0.1", "10.0.1.1");
+        guard.admit("20180102", "FooService", "foo", "10.0.0.1", "10.0.1.1");
+        guard.admit("20180103", "FooService", "foo", "10.0.0.1", "10.0.1.1");
+        Assert.assertEquals(2, guard.getSeries().size());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        Path root = folder.getRoot().toPath();
+        createLeaf(root, "20180101", "10.0.0.9", "10.0.1.9");
+        createLeaf(root, "20180102", "10.0.0.9", "10.0.1.9");
+        createLeaf(root, "20180103", "10.0.0.1", "10.0.1.1");
+        createLeaf(root, "20180103", "10.0.0.2", "10.0.1.1");
+        CardinalityGuard guard = new CardinalityGuard(2, 0);
+        guard.load(root);
+        Assert.assertEquals(2, guard.getSeries().size());
+
+        Assert.assertEquals(CardinalityGuard.OTHER, guard.admit("20180103", "FooService", "foo", "10.0.0.3", "10.0.1.1")[0]);
+        Assert.assertEquals("10.0.0.2", guard.admit("20180103", "FooService", "foo", "10.0.0.2", "10.0.1.1")[0]);
+        Assert.assertEquals("10.0.0.3", guard.admit("20180102", "FooService", "foo", "10.0.0.3", "10.0.1.1")[0]);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * LogReaderTest
+ */
+public class LogReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("dubbo-monitor", ".log");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.write("[2018-01-01] main " + (i % 10 == 0 ? "ERROR" : " INFO") + " Foo: line " + i + "\n");
+                if (i % 10 == 0) {
+                    writer.write("java.lang.IllegalStateException: line " + i + "\n");
+                    writer.write("\tat Foo.bar(Foo.java:" + i + ")\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        LogReader reader = new LogReader(file);
+        LogReader.Chunk last = reader.readBackward(-1, 5, null, null);
+        Assert.assertEquals(Arrays.asList("[2018-01-01] main  INFO Foo: line 95", "[2018-01-01] main  INFO Foo: line 96",
+                "[2018-01-01] main  INFO Foo: line 97", "[2018-01-01] main  INFO Foo: line 98",
+                "[2018-01-01] main  INFO Foo: line 99"), last.getLines());
+        Assert.assertEquals(file.length(), last.getEnd());
+        Assert.assertFalse(last.hasNext());
+        LogReader.Chunk previous = reader.readBackward(last.getStart(), 5, null, null);
+        Assert.assertEquals("\tat Foo.bar(Foo.java:90)", previous.getLines().get(0));
+        Assert.assertEquals("[2018-01-01] main  INFO Foo: line 94", previous.getLines().get(4));
+        LogReader.Chunk next = reader.readForward(previous.getEnd(), 2, null, null);
+        Assert.assertEquals(last.getLines().subList(0, 2), next.getLines());
+        LogReader.Chunk first = reader.readForward(0, 1, null, null);
+        Assert.assertEquals(Arrays.asList("[2018-01-01] main ERROR Foo: line 0"), first.getLines());
+        Assert.assertFalse(first.hasPrevious());
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        LogReader reader = new LogReader(file);
+        LogReader.Chunk errors = reader.readBackward(-1, 6, null, "warn");
+        Assert.assertEquals(Arrays.asList("[2018-01-01] main ERROR Foo: line 80", "java.lang.IllegalStateException: line 80",
+                "\tat Foo.bar(Foo.java:80)", "[2018-01-01] main ERROR Foo: line 90", "java.lang.IllegalStateException: line 90",
+                "\tat Foo.bar(Foo.java:90)"), errors.getLines());
+        Assert.assertEquals(errors.getLines(), reader.readForward(errors.getStart(), 6, null, "ERROR").getLines());
+        Assert.assertEquals(10, reader.readForward(0, 100, "Foo.java", null).getLines().size());
+        Assert.assertEquals(Arrays.asList("\tat Foo.bar(Foo.java:50)"), reader.readBackward(-1, 100, "Foo.java:5", "ERROR").getLines());
+    }
+
+    @Test
+    public void testScanLimit() throws Exception {
+        LogReader reader = new LogReader(file, 1000);
+        LogReader.Chunk none = reader.readBackward(-1, 10, "no such text", null);
+        Assert.assertTrue(none.getLines().isEmpty());
+        Assert.assertTrue(none.hasPrevious());
+        Assert.assertTrue(file.length() - none.getStart() <= 1000 + 100);
+        LogReader.Chunk errors = reader.readBackward(none.getStart(), 10, null, "ERROR");
+        Assert.assertTrue(errors.getStart() < none.getStart());
+        LogReader.Chunk forward = reader.readForward(0, 10, "no such text", null);
+        Assert.assertTrue(forward.getLines().isEmpty());
+        Assert.assertTrue(forward.hasNext());
+        Assert.assertTrue(forward.getEnd() > 0 && forward.getEnd() <= 1000 + 100);
+        long pos = 0;
+        int pages = 0;
+        for (LogReader.Chunk chunk = forward; chunk.hasNext(); chunk = reader.readForward(pos, 10, "no such text", null)) {
+            Assert.assertTrue(chunk.getEnd() > pos);
+            pos = chunk.getEnd();
+            pages++;
+        }
+        Assert.assertTrue(pages > 1);
+    }
+
+    @Test
+    public void testLongLine() throws Exception {
+        File log = File.createTempFile("dubbo-monitor", ".log");
+        log.deleteOnExit();
+        char[] chars = new char[200 * 1024];
+        Arrays.fill(chars, 'x');
+        FileWriter writer = new FileWriter(log);
+        try {
+            writer.write("first\n");
+            writer.write(chars);
+            writer.write("\nlast\n");
+        } finally {
+            writer.close();
+        }
+        LogReader reader = new LogReader(log);
+        LogReader.Chunk backward = reader.readBackward(-1, 10, null, null);
+        Assert.assertEquals(3, backward.getLines().size());
+        Assert.assertEquals("first", backward.getLines().get(0));
+        Assert.assertTrue(backward.getLines().get(1).startsWith("xxx") && backward.getLines().get(1).endsWith(" ..."));
+        Assert.assertEquals("last", backward.getLines().get(2));
+        Assert.assertEquals(backward.getLines(), reader.readForward(0, 10, null, null).getLines());
+
+        // the scan limit stops inside the line
+        LogReader limited = new LogReader(log, 100 * 1024);
+        LogReader.Chunk last = limited.readBackward(-1, 10, null, null);
+        Assert.assertEquals(Arrays.asList("last"), last.getLines());
+        Assert.assertTrue(last.hasPrevious());
+        LogReader.Chunk first = limited.readForward(0, 10, null, null);
+        Assert.assertEquals(2, first.getLines().size());
+        Assert.assertTrue(first.hasNext());
+        Assert.assertTrue(first.getEnd() < log.length() - "\nlast\n".length());
+        Assert.assertEquals(Arrays.asList("last"), limited.readForward(first.getEnd(), 10, null, null).getLines());
+    }
+
+    @Test
+    public void testCharset() throws Exception {
+        File utf8 = File.createTempFile("dubbo-monitor", ".log");
+        utf8.deleteOnExit();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(utf8), "UTF-8");
+        try {
+            writer.write("[2018-01-01] main  INFO \u6CE8\u518C\u4E2D\u5FC3: ok\n");
+        } finally {
+            writer.close();
+        }
+        LogReader.Chunk chunk = new LogReader(utf8).readBackward(-1, 10, "\u6CE8\u518C", null);
+        Assert.assertEquals(Arrays.asList("[2018-01-01] main  INFO \u6CE8\u518C\u4E2D\u5FC3: ok"), chunk.getLines());
+    }
+
+}
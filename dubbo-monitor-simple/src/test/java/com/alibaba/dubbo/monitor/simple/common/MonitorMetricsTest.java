@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * MonitorMetricsTest
+ */
+public class MonitorMetricsTest {
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(5050, histogram.getSum());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(50, histogram.getPercentile(0.5));
+        Assert.assertEquals(100, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void testText() {
+        MonitorMetrics metrics = new MonitorMetrics();
+        metrics.counter("collect.count").add(3);
+        metrics.gauge("queue.size", new MonitorMetrics.Gauge() {
+            public long getValue() {
+                return 7;
+            }
+        });
+        metrics.histogram("write.latency").record(3);
+        String text = metrics.toText();
+        Assert.assertTrue(text, text.contains("dubbo_monitor_collect_count_total 3\n"));
+        Assert.assertTrue(text, text.contains("dubbo_monitor_queue_size 7\n"));
+        Assert.assertTrue(text, text.contains("dubbo_monitor_write_latency_milliseconds_bucket{le=\"2\"} 0\n"));
+        Assert.assertTrue(text, text.contains("dubbo_monitor_write_latency_milliseconds_bucket{le=\"5\"} 1\n"));
+        Assert.assertTrue(text, text.contains("dubbo_monitor_write_latency_milliseconds_count 1\n"));
+    }
+
+}
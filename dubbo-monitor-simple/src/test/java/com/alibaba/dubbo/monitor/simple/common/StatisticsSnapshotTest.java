@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * StatisticsSnapshotTest
+ */
+public class StatisticsSnapshotTest {
+
+    @Test
+    public void testRoll() {
+        StatisticsSnapshot snapshot = new StatisticsSnapshot();
+        snapshot.add("consumer", "FooService", "foo", "10.0.0.1", "10.0.1.1", new long[]{10, 1, 100, 2, 30, 3});
+        snapshot.add("consumer", "FooService", "foo", "10.0.0.1", "10.0.1.1", new long[]{5, 0, 50, 4, 20, 1});
+        Assert.assertEquals("", snapshot.getText());
+        Assert.assertEquals(1, snapshot.getCurrentSize());
+
+        snapshot.roll();
+        String text = snapshot.getText();
+        Assert.assertTrue(text, text.contains("dubbo_call_success{service=\"FooService\",method=\"foo\",consumer=\"10.0.0.1\",provider=\"10.0.1.1\",side=\"consumer\"} 15\n"));
+        Assert.assertTrue(text, text.contains("dubbo_call_elapsed_milliseconds{service=\"FooService\",method=\"foo\",consumer=\"10.0.0.1\",provider=\"10.0.1.1\",side=\"consumer\"} 150\n"));
+        Assert.assertTrue(text, text.contains("dubbo_call_max_elapsed_milliseconds{service=\"FooService\",method=\"foo\",consumer=\"10.0.0.1\",provider=\"10.0.1.1\",side=\"consumer\"} 30\n"));
+        Assert.assertEquals(1, snapshot.getLastSize());
+        Assert.assertEquals(0, snapshot.getCurrentSize());
+
+        snapshot.roll();
+        Assert.assertFalse(snapshot.getText().contains("FooService"));
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StatisticsWalkerTest
+ */
+public class StatisticsWalkerTest {
+
+    private static Path newTree(int methods) throws Exception {
+        Path root = Files.createTempDirectory("dubbo-statistics");
+        root.toFile().deleteOnExit();
+        for (int m = 0; m < methods; m++) {
+            Path leaf = root.resolve("20180101").resolve("FooService").resolve("method" + m)
+                    .resolve("10.0.0.1").resolve("10.0.0.2");
+            Files.createDirectories(leaf);
+            Files.createFile(leaf.resolve("success"));
+        }
+        return root;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testWalk() throws Exception {
+        Path root = newTree(3);
+        try {
+            final Set<String> methods = Collections.synchronizedSet(new HashSet<String>());
+            StatisticsWalker.walk(root, "20180101", "20180101", null, new StatisticsWalker.Visitor() {
+                public void visit(StatisticsWalker.MethodNode node) {
+                    Assert.assertEquals(1, node.getLeaves().size());
+                    methods.add(node.getService() + "." + node.getMethod());
+                }
+            });
+            Assert.assertEquals(3, methods.size());
+            Assert.assertTrue(methods.contains("FooService.method0"));
+        } finally {
+            delete(root.toFile());
+        }
+    }
+
+    @Test
+    public void testLastModified() throws Exception {
+        Path root = newTree(1);
+        try {
+            Path dir = root.resolve("20180101").resolve("FooService");
+            Assert.assertEquals(-1, StatisticsWalker.getLastModified(dir, "29991231"));
+            long lastModified = StatisticsWalker.getLastModified(dir, "20180101");
+            Assert.assertTrue(lastModified > 0);
+            File file = dir.resolve("method0").resolve("10.0.0.1").resolve("10.0.0.2").resolve("success").toFile();
+            Assert.assertTrue(file.setLastModified(lastModified + 10000));
+            // cached, the tree is not walked again
+            Assert.assertEquals(lastModified, StatisticsWalker.getLastModified(dir, "20180101"));
+        } finally {
+            delete(root.toFile());
+        }
+    }
+
+    @Test
+    public void testInterrupt() throws Exception {
+        Path root = newTree(20);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final CountDownLatch visiting = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicInteger visited = new AtomicInteger();
+            final Thread caller = Thread.currentThread();
+            new Thread() {
+                public void run() {
+                    try {
+                        visiting.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    caller.interrupt();
+                }
+            }.start();
+            long start = System.currentTimeMillis();
+            StatisticsWalker.walk(pool, root, null, null, "FooService", new StatisticsWalker.Visitor() {
+                public void visit(StatisticsWalker.MethodNode node) {
+                    visited.incrementAndGet();
+                    visiting.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            // returns while the visitor still blocks
+            Assert.assertTrue(Thread.interrupted());
+            Assert.assertTrue(System.currentTimeMillis() - start < 4000);
+            release.countDown();
+            pool.shutdown();
+            Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, visited.get());
+        } finally {
+            pool.shutdownNow();
+            delete(root.toFile());
+        }
+    }
+
+}
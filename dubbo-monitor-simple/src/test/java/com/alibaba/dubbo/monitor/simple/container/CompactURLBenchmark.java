@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.container;
+
+import com.alibaba.dubbo.common.URL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CompactURLBenchmark
+ * <p>
+ * Retained heap of registry urls kept as {@link URL} and as {@link CompactURL}, measured as the used heap
+ * difference after full collections. Arguments: applications, services per application, hosts per service and
+ * <code>url</code> or <code>compact</code>; run each mode in its own JVM with a fixed heap, e.g. <code>-Xms1g -Xmx1g</code>.
+ */
+public class CompactURLBenchmark {
+
+    private static final String METHODS = "sayHello,sayGoodbye,findById,findByName,findAll,save,update,delete,count,exists";
+
+    static URL newURL(int application, int service, int host) {
+        String name = "com.alibaba.dubbo.demo.app" + application + ".DemoService" + service;
+        // parsed from a fresh string as registry notifications are
+        return URL.valueOf(new StringBuilder("dubbo://10.0.").append(application).append('.').append(host)
+                .append(":20880/").append(name).append("?anyhost=true&application=app").append(application)
+                .append("&dubbo=2.6.0&generic=false&interface=").append(name)
+                .append("&methods=").append(METHODS).append("&owner=team").append(application % 10)
+                .append("&pid=").append(1000 + host).append("&side=provider&timeout=3000&category=providers")
+                .append("&timestamp=").append(1500000000000L + application * 1000 + host).toString());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    public static void main(String[] args) {
+        int applications = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int services = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int hosts = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int count = applications * services * hosts;
+
+        boolean compact = args.length > 3 && "compact".equals(args[3]);
+
+        long base = usedMemory();
+        List<Object> urls = new ArrayList<Object>(count);
+        for (int a = 0; a < applications; a++) {
+            for (int s = 0; s < services; s++) {
+                for (int h = 0; h < hosts; h++) {
+                    URL url = newURL(a, s, h);
+                    urls.add(compact ? CompactURL.valueOf(url) : url);
+                }
+            }
+        }
+        long size = usedMemory() - base;
+
+        System.out.println(count + (compact ? " CompactURL: " : " URL: ") + size / 1024 + " KB, " + size / count + " bytes/url");
+        if (compact && !((CompactURL) urls.get(0)).toURL().equals(newURL(0, 0, 0))) {
+            throw new IllegalStateException("Materialized url differs");
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.container;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * DependencyGraphTest
+ */
+public class DependencyGraphTest {
+
+    @Test
+    public void testWeight() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.addProvider("FooService", "foo");
+        graph.addProvider("BarService", "foo");
+        graph.addConsumer("FooService", "bar");
+        graph.addConsumer("BarService", "bar");
+        Assert.assertEquals(Collections.singletonMap("foo", 2), graph.getDependencies("bar", false));
+        Assert.assertEquals(Collections.singletonMap("bar", 2), graph.getDependencies("foo", true));
+        graph.removeProvider("FooService", "foo");
+        Assert.assertEquals(Collections.singletonMap("foo", 1), graph.getDependencies("bar", false));
+        graph.removeConsumer("BarService", "bar");
+        Assert.assertTrue(graph.getDependencies("bar", false).isEmpty());
+        Assert.assertTrue(graph.getDependencies("foo", true).isEmpty());
+    }
+
+    @Test
+    public void testClosureAndCycle() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.addProvider("AService", "a");
+        graph.addProvider("BService", "b");
+        graph.addProvider("CService", "c");
+        graph.addConsumer("BService", "a");
+        graph.addConsumer("CService", "b");
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("b", "c")), graph.getClosure("a", false));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("a", "b")), graph.getClosure("c", true));
+        Assert.assertTrue(graph.getCycle("a").isEmpty());
+        graph.addConsumer("AService", "c");
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")), graph.getCycle("b"));
+        graph.removeConsumer("AService", "c");
+        Assert.assertTrue(graph.getCycle("b").isEmpty());
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.container;
+
+import com.alibaba.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RegistryContainerTest
+ */
+public class RegistryContainerTest {
+
+    private static URL provider(String host, String service, String application) {
+        return URL.valueOf("dubbo://" + host + ":20880/" + service + "?interface=" + service
+                + "&application=" + application + "&category=providers");
+    }
+
+    private static URL consumer(String host, String service, String application) {
+        return URL.valueOf("consumer://" + host + "/" + service + "?interface=" + service
+                + "&application=" + application + "&category=consumers");
+    }
+
+    private static URL empty(String service, String category) {
+        return URL.valueOf("empty://0.0.0.0/" + service + "?interface=" + service + "&category=" + category);
+    }
+
+    @Test
+    public void testNotify() {
+        RegistryContainer container = new RegistryContainer();
+        URL foo1 = provider("10.0.0.1", "FooService", "foo");
+        URL foo2 = provider("10.0.0.2", "FooService", "foo");
+        URL bar = consumer("10.0.0.3", "FooService", "bar");
+        container.onNotify(Arrays.asList(foo1, foo2));
+        container.onNotify(Arrays.asList(bar));
+        Assert.assertEquals(Arrays.asList(foo1, foo2), container.getProvidersByService("FooService"));
+        Assert.assertEquals(Arrays.asList(foo1, foo2), container.getProvidersByApplication("foo"));
+        Assert.assertEquals(Arrays.asList(bar), container.getConsumersByHost("10.0.0.3"));
+        Assert.assertEquals(Collections.singleton("foo"), container.getDependencies("bar", false));
+        Assert.assertEquals(Collections.singleton("bar"), container.getDependencies("foo", true));
+        Assert.assertEquals(3, container.getHosts().size());
+
+        container.onNotify(Arrays.asList(foo2));
+        Assert.assertEquals(Arrays.asList(foo2), container.getProvidersByService("FooService"));
+        Assert.assertTrue(container.getProvidersByHost("10.0.0.1").isEmpty());
+        Assert.assertFalse(container.getHosts().contains("10.0.0.1"));
+        Assert.assertEquals(2, container.getApplications().size());
+
+        container.onNotify(Arrays.asList(empty("FooService", "providers")));
+        Assert.assertNull(container.getProvidersByService("FooService"));
+        Assert.assertEquals(Collections.singleton("bar"), container.getApplications());
+        Assert.assertTrue(container.getDependencies("bar", false).isEmpty());
+        Assert.assertEquals(Collections.singleton("FooService"), container.getServices());
+
+        container.onNotify(Arrays.asList(empty("FooService", "consumers")));
+        Assert.assertTrue(container.getApplications().isEmpty());
+        Assert.assertTrue(container.getServices().isEmpty());
+        Assert.assertTrue(container.getHosts().isEmpty());
+        Assert.assertTrue(container.getServiceConsumers().isEmpty());
+    }
+
+    @Test
+    public void testHostAndApplicationIndexes() {
+        RegistryContainer container = new RegistryContainer();
+        URL foo = provider("10.0.0.1", "FooService", "shop");
+        URL bar = provider("10.0.0.1", "BarService", "shop");
+        URL baz = provider("10.0.0.2", "BazService", "stock");
+        URL fooConsumer = consumer("10.0.0.1", "FooService", "web");
+        URL barConsumer = consumer("10.0.0.3", "BarService", "web");
+        container.onNotify(Arrays.asList(foo, fooConsumer));
+        container.onNotify(Arrays.asList(bar, barConsumer));
+        container.onNotify(Arrays.asList(baz));
+        Assert.assertEquals(Arrays.asList(foo, bar), container.getProvidersByHost("10.0.0.1"));
+        Assert.assertEquals(Arrays.asList(foo, bar), container.getProvidersByApplication("shop"));
+        Assert.assertEquals(Arrays.asList(baz), container.getProvidersByApplication("stock"));
+        Assert.assertEquals(Arrays.asList(fooConsumer), container.getConsumersByHost("10.0.0.1"));
+        Assert.assertEquals(Arrays.asList(fooConsumer, barConsumer), container.getConsumersByApplication("web"));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3")), container.getHosts());
+        Assert.assertTrue(container.getProvidersByHost("10.0.0.9").isEmpty());
+        Assert.assertTrue(container.getProvidersByApplication("").isEmpty());
+
+        // a removal only drops the urls of its own service
+        container.onNotify(Arrays.asList(empty("FooService", "providers")));
+        Assert.assertEquals(Arrays.asList(bar), container.getProvidersByHost("10.0.0.1"));
+        Assert.assertEquals(Arrays.asList(bar), container.getProvidersByApplication("shop"));
+        Assert.assertTrue(container.getHosts().contains("10.0.0.1"));
+
+        // a provider moving to another host
+        URL moved = provider("10.0.0.4", "BarService", "shop");
+        container.onNotify(Arrays.asList(moved));
+        Assert.assertTrue(container.getProvidersByHost("10.0.0.1").isEmpty());
+        Assert.assertEquals(Arrays.asList(moved), container.getProvidersByHost("10.0.0.4"));
+        Assert.assertEquals(Arrays.asList(moved), container.getProvidersByApplication("shop"));
+
+        container.onNotify(Arrays.asList(delta(fooConsumer, "remove", 1), delta(baz, "remove", 2)));
+        Assert.assertTrue(container.getConsumersByHost("10.0.0.1").isEmpty());
+        Assert.assertEquals(Arrays.asList(barConsumer), container.getConsumersByApplication("web"));
+        Assert.assertTrue(container.getProvidersByApplication("stock").isEmpty());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("10.0.0.3", "10.0.0.4")), container.getHosts());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("shop", "web")), container.getApplications());
+    }
+
+    private static URL delta(URL url, String delta, long revision) {
+        return url.addParameter("delta", delta).addParameter("revision", revision);
+    }
+
+    @Test
+    public void testDelta() {
+        RegistryContainer container = new RegistryContainer();
+        URL foo1 = provider("10.0.0.1", "FooService", "foo");
+        URL foo2 = provider("10.0.0.2", "FooService", "foo");
+        URL bar = consumer("10.0.0.3", "FooService", "bar");
+        container.onNotify(Arrays.asList(foo1.addParameter("revision", 3)));
+        container.onNotify(Arrays.asList(delta(foo2, "add", 4), delta(bar, "add", 5), delta(foo1, "remove", 6)));
+        Assert.assertEquals(Arrays.asList(foo2), container.getProvidersByService("FooService"));
+        Assert.assertEquals(Collections.singleton("foo"), container.getDependencies("bar", false));
+        // replayed changes are harmless
+        container.onNotify(Arrays.asList(delta(foo2, "add", 4), delta(foo1, "remove", 6)));
+        Assert.assertEquals(Arrays.asList(foo2), container.getProvidersByService("FooService"));
+
+        container.onNotify(Arrays.asList(delta(foo2, "remove", 7)));
+        Assert.assertNull(container.getProvidersByService("FooService"));
+        Assert.assertTrue(container.getDependencies("bar", false).isEmpty());
+
+        container.onNotify(Arrays.asList(delta(URL.valueOf("empty://0.0.0.0/*?interface=*&category=providers,consumers"), "reset", 8)));
+        Assert.assertTrue(container.getApplications().isEmpty());
+        Assert.assertTrue(container.getServices().isEmpty());
+        Assert.assertTrue(container.getHosts().isEmpty());
+    }
+
+    @Test
+    public void testReadersGetCopies() {
+        RegistryContainer container = new RegistryContainer();
+        URL foo1 = provider("10.0.0.1", "FooService", "foo");
+        URL foo2 = provider("10.0.0.2", "FooService", "foo");
+        URL foo3 = provider("10.0.0.3", "FooService", "foo");
+        container.onNotify(Arrays.asList(foo1, foo2));
+        List<URL> before = container.getProvidersByService("FooService");
+        Map<String, List<URL>> all = container.getServiceProviders();
+        container.onNotify(Arrays.asList(delta(foo3, "add", 1), delta(foo1, "remove", 2)));
+        Assert.assertEquals(Arrays.asList(foo1, foo2), before);
+        Assert.assertEquals(Arrays.asList(foo1, foo2), all.get("FooService"));
+        Assert.assertEquals(Arrays.asList(foo2, foo3), container.getProvidersByService("FooService"));
+        container.onNotify(Arrays.asList(foo3, foo1));
+        Assert.assertEquals(Arrays.asList(foo3, foo1), container.getProvidersByService("FooService"));
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PageExecutorTest
+ */
+public class PageExecutorTest {
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            public void run() {
+                started.countDown();
+                // like a page stuck in io, it does not stop when interrupted
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static void awaitPermits(PageExecutor executor, int permits) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (executor.getAvailablePermits() != permits && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(permits, executor.getAvailablePermits());
+    }
+
+    @Test
+    public void testCancelRunning() throws Exception {
+        PageExecutor executor = new PageExecutor(1, 1, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> future = executor.submit(block(started, release));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executor.getAvailablePermits());
+        future.cancel(true);
+        Thread.sleep(100);
+        // the cancelled page still runs and still holds its permit
+        Assert.assertEquals(1, executor.getAvailablePermits());
+        release.countDown();
+        awaitPermits(executor, 2);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCancelQueued() throws Exception {
+        PageExecutor executor = new PageExecutor(1, 1, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(block(started, release));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<?> queued = executor.submit(block(new CountDownLatch(1), release));
+        try {
+            executor.submit(block(new CountDownLatch(1), release));
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        queued.cancel(true);
+        Assert.assertEquals(1, executor.getAvailablePermits());
+        release.countDown();
+        awaitPermits(executor, 2);
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PageServletTest
+ */
+public class PageServletTest {
+
+    @Test
+    public void testGetText() {
+        Assert.assertEquals("com.foo.BarService", PageServlet.getText("com.foo.BarService"));
+        Assert.assertEquals("com.foo.BarService(2)", PageServlet.getText(
+                "<a href=\"providers.html?service=com.foo.BarService\">com.foo.BarService</a>(<font color=\"red\">2</font>)"));
+        Assert.assertEquals("a < b & c", PageServlet.getText("a &lt; b &amp; c"));
+        Assert.assertEquals(-1, PageServlet.getText("<a href=\"providers.html\">x</a>").indexOf("href"));
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.monitor.simple.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ResourceCacheTest
+ */
+public class ResourceCacheTest {
+
+    private static File write(File dir, String name, int size) throws IOException {
+        File file = new File(dir, name);
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            byte[] data = new byte[size];
+            Arrays.fill(data, (byte) 'a');
+            output.write(data);
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+
+    private static File newDirectory() throws IOException {
+        File dir = File.createTempFile("dubbo-resource", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        File dir = newDirectory();
+        File file = write(dir, "a.css", 100);
+        ResourceCache cache = new ResourceCache(Arrays.asList(dir.getPath()), 1024 * 1024, 1024, 0);
+        ResourceCache.Resource resource = cache.get("/a.css");
+        Assert.assertEquals(100, resource.getData().length);
+        Assert.assertNotNull(resource.getGzip());
+        Assert.assertFalse(resource.getEtag().equals(resource.getGzipEtag()));
+        Assert.assertTrue(resource.getGzipEtag().endsWith("-gzip\""));
+        Assert.assertEquals("text/css; charset=UTF-8", resource.getContentType());
+        Assert.assertSame(resource, cache.get("/a.css"));
+        write(dir, "a.css", 200);
+        file.setLastModified(resource.getLastModified() - 10000);
+        Assert.assertEquals(200, cache.get("/a.css").getData().length);
+        Assert.assertNull(cache.get("/b.css"));
+        Assert.assertNull(cache.get("/../a.css"));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        File dir = newDirectory();
+        for (int i = 0; i < 10; i++) {
+            write(dir, i + ".png", 1000);
+        }
+        ResourceCache cache = new ResourceCache(Arrays.asList(dir.getPath()), 5000, 2000, 1000);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNotNull(cache.get("/" + i + ".png"));
+        }
+        Assert.assertTrue(cache.getSize() <= 5000);
+        Assert.assertTrue(cache.getCount() < 10);
+        write(dir, "large.png", 3000);
+        ResourceCache.Resource large = cache.get("/large.png");
+        Assert.assertNull(large.getData());
+        Assert.assertNull(large.getGzipEtag());
+        Assert.assertEquals(3000, large.getLength());
+    }
+
+    @Test
+    public void testRange() {
+        Assert.assertArrayEquals(new long[]{0, 99}, ResourceFilter.parseRange("bytes=0-99", 1000));
+        Assert.assertArrayEquals(new long[]{900, 999}, ResourceFilter.parseRange("bytes=900-", 1000));
+        Assert.assertArrayEquals(new long[]{950, 999}, ResourceFilter.parseRange("bytes=-50", 1000));
+        Assert.assertArrayEquals(new long[]{990, 999}, ResourceFilter.parseRange("bytes=990-2000", 1000));
+        Assert.assertEquals(0, ResourceFilter.parseRange("bytes=1000-", 1000).length);
+        Assert.assertNull(ResourceFilter.parseRange("bytes=0-1,5-6", 1000));
+        Assert.assertNull(ResourceFilter.parseRange("items=0-1", 1000));
+    }
+
+}
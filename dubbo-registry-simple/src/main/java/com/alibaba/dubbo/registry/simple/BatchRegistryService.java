@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import java.util.List;
+
+/**
+ * BatchRegistryService
+ * <p>
+ * Applies several registrations and unregistrations as one change, so a replaced url is never
+ * seen missing and every subscriber affected is notified once.
+ */
+public interface BatchRegistryService {
+
+    /**
+     * Unregister and register urls at once, a url in both lists ends up registered.
+     *
+     * @param registers urls to register
+     * @param unregisters urls to unregister
+     */
+    void update(List<URL> registers, List<URL> unregisters);
+
+}
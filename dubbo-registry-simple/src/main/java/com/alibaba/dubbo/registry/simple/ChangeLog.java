@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChangeLog
+ * <p>
+ * The last registrations and unregistrations, numbered by a registry wide revision, plus the
+ * revision of the last change of every service. The changes of a batch share one revision.
+ * Subscribers behind the changes still in the log need a snapshot. The changes must be the ones the
+ * index applied, so the log knows which services have no urls left and forgets them once their last
+ * change is pushed out of the log.
+ */
+class ChangeLog {
+
+    private final URL[] urls;
+
+    private final boolean[] added;
+
+    private final long[] revisions;
+
+    private final Map<String, Long> serviceRevisions = new HashMap<String, Long>();
+
+    private final Map<String, Integer> serviceSizes = new HashMap<String, Integer>();
+
+    // services without urls and the revision of their last change, oldest first
+    private final Map<String, Long> emptyServices = new LinkedHashMap<String, Long>();
+
+    private long revision;
+
+    // changes ever appended
+    private long count;
+
+    // revision of the last change pushed out of the log
+    private long evicted;
+
+    ChangeLog(int capacity) {
+        this.urls = new URL[Math.max(1, capacity)];
+        this.added = new boolean[urls.length];
+        this.revisions = new long[urls.length];
+    }
+
+    /**
+     * @return the revision of the change
+     */
+    public synchronized long append(URL url, boolean add) {
+        revision++;
+        put(url, add);
+        return revision;
+    }
+
+    /**
+     * Append the changes of a batch under one revision, the removals first.
+     *
+     * @return the revision of the batch, the current one if both are empty
+     */
+    public synchronized long append(List<URL> removed, List<URL> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return revision;
+        }
+        revision++;
+        for (URL url : removed) {
+            put(url, false);
+        }
+        for (URL url : added) {
+            put(url, true);
+        }
+        return revision;
+    }
+
+    private void put(URL url, boolean add) {
+        int i = (int) (count % urls.length);
+        if (count >= urls.length && evicted != revisions[i]) {
+            evicted = revisions[i];
+            prune();
+        }
+        urls[i] = url;
+        added[i] = add;
+        revisions[i] = revision;
+        count++;
+        String service = url.getServiceInterface();
+        serviceRevisions.put(service, revision);
+        Integer size = serviceSizes.get(service);
+        size = (size == null ? 0 : size) + (add ? 1 : -1);
+        if (size > 0) {
+            serviceSizes.put(service, size);
+            emptyServices.remove(service);
+        } else {
+            serviceSizes.remove(service);
+            emptyServices.remove(service);
+            emptyServices.put(service, revision);
+        }
+    }
+
+    private void prune() {
+        for (Iterator<Map.Entry<String, Long>> iterator = emptyServices.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getValue() > evicted) {
+                break;
+            }
+            serviceRevisions.remove(entry.getKey());
+            iterator.remove();
+        }
+    }
+
+    synchronized int getServiceCount() {
+        return serviceRevisions.size();
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public synchronized long getRevision(String service) {
+        Long serviceRevision = serviceRevisions.get(service);
+        return serviceRevision == null ? 0 : serviceRevision;
+    }
+
+    /**
+     * @return the changes after the revision, in order, or null if they are not all in the log any more.
+     */
+    public synchronized List<Change> getChanges(long since) {
+        if (since < evicted) {
+            return null;
+        }
+        long first = count;
+        long oldest = Math.max(0, count - urls.length);
+        while (first > oldest && revisions[(int) ((first - 1) % urls.length)] > since) {
+            first--;
+        }
+        List<Change> changes = new ArrayList<Change>((int) (count - first));
+        for (long c = first; c < count; c++) {
+            int i = (int) (c % urls.length);
+            changes.add(new Change(revisions[i], urls[i], added[i]));
+        }
+        return changes;
+    }
+
+    /**
+     * Change
+     */
+    static class Change {
+
+        private final long revision;
+
+        private final URL url;
+
+        private final boolean added;
+
+        Change(long revision, URL url, boolean added) {
+            this.revision = revision;
+            this.url = url;
+            this.added = added;
+        }
+
+        public long getRevision() {
+            return revision;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public boolean isAdded() {
+            return added;
+        }
+
+    }
+
+}
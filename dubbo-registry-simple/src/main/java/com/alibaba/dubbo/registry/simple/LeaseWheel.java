@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LeaseWheel
+ * <p>
+ * Client leases in a hashed timing wheel: a lease sits in the bucket of the tick its deadline falls in,
+ * a renewal only moves the deadline, and a lease found renewed when its bucket comes round is put in
+ * the bucket of its new deadline. Renewing is O(1) and a tick only visits the leases due in it.
+ */
+class LeaseWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseWheel.class);
+
+    private final long duration;
+
+    private final long tick;
+
+    private final List<Set<Lease>> buckets;
+
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<String, Lease>();
+
+    private final Handler handler;
+
+    private final ScheduledExecutorService executor;
+
+    // guarded by this
+    private long ticked;
+
+    LeaseWheel(long duration, long tick, int size, Handler handler) {
+        this.duration = duration;
+        this.tick = tick;
+        this.handler = handler;
+        this.buckets = new ArrayList<Set<Lease>>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new HashSet<Lease>());
+        }
+        this.ticked = System.currentTimeMillis() / tick;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DubboRegistryLease", true));
+        executor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    tick();
+                } catch (Throwable e) {
+                    logger.warn("Failed to expire leases, cause: " + e.getMessage(), e);
+                }
+            }
+        }, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    public void renew(String client) {
+        long deadline = System.currentTimeMillis() + duration;
+        Lease lease = leases.get(client);
+        if (lease == null) {
+            Lease created = new Lease(client, deadline);
+            lease = leases.putIfAbsent(client, created);
+            if (lease == null) {
+                synchronized (this) {
+                    schedule(created);
+                }
+                return;
+            }
+        }
+        lease.deadline = deadline;
+    }
+
+    /**
+     * Left in its bucket, skipped when the bucket comes round.
+     */
+    public void cancel(String client) {
+        leases.remove(client);
+    }
+
+    public int size() {
+        return leases.size();
+    }
+
+    private void schedule(Lease lease) {
+        long due = Math.max((lease.deadline + tick - 1) / tick, ticked + 1);
+        // more than a round ahead it is visited early and put back
+        buckets.get((int) (due % buckets.size())).add(lease);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<String>();
+        synchronized (this) {
+            long current = now / tick;
+            while (ticked < current) {
+                ticked++;
+                Set<Lease> bucket = buckets.get((int) (ticked % buckets.size()));
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+                List<Lease> due = new ArrayList<Lease>(bucket);
+                bucket.clear();
+                for (Lease lease : due) {
+                    if (leases.get(lease.client) != lease) {
+                        continue;
+                    }
+                    if (lease.deadline <= now) {
+                        long active = handler.getLastActive(lease.client);
+                        if (active + duration > now) {
+                            lease.deadline = Math.max(lease.deadline, active + duration);
+                        } else if (leases.remove(lease.client, lease)) {
+                            expired.add(lease.client);
+                            continue;
+                        }
+                    }
+                    schedule(lease);
+                }
+            }
+        }
+        if (!expired.isEmpty()) {
+            handler.expired(expired);
+        }
+    }
+
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    interface Handler {
+
+        /**
+         * @return the last time the client was heard from outside of the renewals, 0 if unknown
+         */
+        long getLastActive(String client);
+
+        void expired(List<String> clients);
+
+    }
+
+    private static class Lease {
+
+        final String client;
+
+        volatile long deadline;
+
+        Lease(String client, long deadline) {
+            this.client = client;
+            this.deadline = deadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NotifyCoalescer
+ * <p>
+ * Collects the changes of a subscribed url until no change came for a window, or the first change
+ * is max delay old, and then flushes it once, so the subscribers get the final state instead of
+ * one list per registration of a restarting application.
+ */
+class NotifyCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotifyCoalescer.class);
+
+    private final long window;
+
+    private final long maxDelay;
+
+    private final Flusher flusher;
+
+    // times of the first and the last change by subscribed url
+    private final Map<URL, long[]> pending = new HashMap<URL, long[]>();
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong changes = new AtomicLong();
+
+    private final AtomicLong flushes = new AtomicLong();
+
+    NotifyCoalescer(long window, long maxDelay, Flusher flusher) {
+        this.window = window;
+        this.maxDelay = Math.max(window, maxDelay);
+        this.flusher = flusher;
+        this.executor = window > 0 ? Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DubboRegistryNotifyCoalescer", true)) : null;
+    }
+
+    public void changed(URL subscribed) {
+        changes.incrementAndGet();
+        if (executor == null) {
+            flush(subscribed);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            long[] times = pending.get(subscribed);
+            if (times != null) {
+                times[1] = now;
+                return;
+            }
+            pending.put(subscribed, new long[]{now, now});
+        }
+        schedule(subscribed, window);
+    }
+
+    private void schedule(final URL subscribed, long delay) {
+        executor.schedule(new Runnable() {
+            public void run() {
+                check(subscribed);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void check(URL subscribed) {
+        long wait;
+        synchronized (pending) {
+            long[] times = pending.get(subscribed);
+            if (times == null) {
+                return;
+            }
+            wait = Math.min(times[1] + window, times[0] + maxDelay) - System.currentTimeMillis();
+            if (wait <= 0) {
+                pending.remove(subscribed);
+            }
+        }
+        if (wait > 0) {
+            schedule(subscribed, wait);
+        } else {
+            flush(subscribed);
+        }
+    }
+
+    private void flush(URL subscribed) {
+        flushes.incrementAndGet();
+        try {
+            flusher.flush(subscribed);
+        } catch (Throwable t) {
+            logger.warn("Failed to notify " + subscribed + ", cause: " + t.getMessage(), t);
+        }
+    }
+
+    public long getChanges() {
+        return changes.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    /**
+     * @return the notifications rounds saved by coalescing.
+     */
+    public long getSaved() {
+        return changes.get() - flushes.get();
+    }
+
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Flusher
+     */
+    interface Flusher {
+
+        void flush(URL subscribed);
+
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
+import com.alibaba.dubbo.registry.NotifyListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NotifyDispatcher
+ * <p>
+ * Every listener has a bounded queue of notifications, drained in order by one shared pool, so
+ * registrations never wait for a subscriber. A notification replaces the pending one of the same
+ * key, a listener whose queue overflows or whose oldest notification waits longer than the max
+ * lag is dropped. A task can also run on the calling thread in the listener's turn.
+ */
+class NotifyDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotifyDispatcher.class);
+
+    // tasks one listener runs before giving the pool thread to the others
+    private static final int BATCH = 16;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int capacity;
+
+    private final long maxLag;
+
+    private final DropHandler dropHandler;
+
+    private final ConcurrentMap<NotifyListener, ListenerQueue> queues = new ConcurrentHashMap<NotifyListener, ListenerQueue>();
+
+    private final AtomicLong collapsed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity pending notifications per listener
+     * @param maxLag   milliseconds a notification may wait, or a listener may take, before the listener is dropped
+     */
+    NotifyDispatcher(int threads, int capacity, long maxLag, DropHandler dropHandler) {
+        // one queued drain per busy listener at most, so the pool queue is bounded by the listeners
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("DubboRegistryNotifier", true),
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.capacity = capacity;
+        this.maxLag = maxLag;
+        this.dropHandler = dropHandler;
+    }
+
+    /**
+     * @param key the pending task of the same key is replaced, null never collapses
+     */
+    public void execute(NotifyListener listener, Object key, Runnable task) {
+        getQueue(listener).add(key == null ? new Object() : key, task);
+    }
+
+    /**
+     * Run the task on the calling thread, after the task in progress of the listener and in place of
+     * its pending task of the same key, so the notifications of a key still arrive in order.
+     */
+    public void executeNow(NotifyListener listener, Object key, Runnable task) {
+        getQueue(listener).runNow(key, task);
+    }
+
+    private ListenerQueue getQueue(NotifyListener listener) {
+        ListenerQueue queue = queues.get(listener);
+        if (queue == null) {
+            queues.putIfAbsent(listener, new ListenerQueue(listener));
+            queue = queues.get(listener);
+        }
+        return queue;
+    }
+
+    /**
+     * Forget the listener, the task in progress still finishes.
+     */
+    public void remove(NotifyListener listener) {
+        ListenerQueue queue = queues.remove(listener);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Forget the pending task of the key, the other tasks of the listener stay.
+     */
+    public void remove(NotifyListener listener, Object key) {
+        ListenerQueue queue = queues.get(listener);
+        if (queue != null) {
+            queue.remove(key);
+        }
+    }
+
+    /**
+     * @return pending notifications and lag in milliseconds of the listener, null if it has none.
+     */
+    public long[] getLag(NotifyListener listener) {
+        ListenerQueue queue = queues.get(listener);
+        return queue == null ? null : queue.getLag(System.currentTimeMillis());
+    }
+
+    public long getCollapsed() {
+        return collapsed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * DropHandler
+     */
+    interface DropHandler {
+
+        void dropped(NotifyListener listener, String reason);
+
+    }
+
+    private class ListenerQueue implements Runnable {
+
+        private final NotifyListener listener;
+
+        // task and enqueue time by key, in order
+        private final LinkedHashMap<Object, Object[]> tasks = new LinkedHashMap<Object, Object[]>();
+
+        private boolean running;
+
+        private long runningSince;
+
+        private boolean closed;
+
+        // callers of runNow waiting for the pool thread to step aside
+        private int waiting;
+
+        ListenerQueue(NotifyListener listener) {
+            this.listener = listener;
+        }
+
+        void add(Object key, Runnable task) {
+            String reason = null;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                Object[] pending = tasks.get(key);
+                if (pending != null) {
+                    // a newer state of the same key, the stale one is never sent
+                    pending[0] = task;
+                    collapsed.incrementAndGet();
+                } else if (tasks.size() >= capacity) {
+                    reason = "more than " + capacity + " pending notifications";
+                } else {
+                    tasks.put(key, new Object[]{task, now});
+                }
+                if (reason == null) {
+                    long lag = getLag(now)[1];
+                    if (lag > maxLag) {
+                        reason = "lag " + lag + "ms";
+                    }
+                }
+                if (reason == null) {
+                    if (running) {
+                        return;
+                    }
+                    running = true;
+                }
+            }
+            if (reason != null) {
+                drop(reason);
+            } else {
+                executor.execute(this);
+            }
+        }
+
+        synchronized long[] getLag(long now) {
+            long lag = 0;
+            if (running && runningSince > 0) {
+                lag = now - runningSince;
+            }
+            Iterator<Object[]> iterator = tasks.values().iterator();
+            if (iterator.hasNext()) {
+                lag = Math.max(lag, now - (Long) iterator.next()[1]);
+            }
+            return new long[]{tasks.size(), lag};
+        }
+
+        void runNow(Object key, Runnable task) {
+            boolean interrupted = false;
+            synchronized (this) {
+                waiting++;
+                while (running) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                waiting--;
+                if (closed) {
+                    return;
+                }
+                // the pending one of the key is older than the state this task reads
+                tasks.remove(key);
+                running = true;
+                runningSince = System.currentTimeMillis();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Failed to notify " + listener + ", cause: " + t.getMessage(), t);
+            } finally {
+                boolean schedule = false;
+                synchronized (this) {
+                    running = false;
+                    runningSince = 0;
+                    if (waiting > 0) {
+                        notifyAll();
+                    } else if (!tasks.isEmpty()) {
+                        running = true;
+                        schedule = true;
+                    }
+                }
+                if (schedule) {
+                    executor.execute(this);
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        synchronized void remove(Object key) {
+            tasks.remove(key);
+        }
+
+        synchronized void clear() {
+            closed = true;
+            tasks.clear();
+        }
+
+        private void drop(String reason) {
+            if (queues.remove(listener, this)) {
+                clear();
+                dropped.incrementAndGet();
+                logger.warn("Drop slow notify listener " + listener + ", " + reason);
+                dropHandler.dropped(listener, reason);
+            }
+        }
+
+        public void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Runnable task;
+                synchronized (this) {
+                    Iterator<Map.Entry<Object, Object[]>> iterator = tasks.entrySet().iterator();
+                    if (!iterator.hasNext() || waiting > 0) {
+                        // a waiting runNow schedules the rest when it is done
+                        running = false;
+                        runningSince = 0;
+                        notifyAll();
+                        return;
+                    }
+                    task = (Runnable) iterator.next().getValue()[0];
+                    iterator.remove();
+                    runningSince = System.currentTimeMillis();
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.warn("Failed to notify " + listener + ", cause: " + t.getMessage(), t);
+                }
+            }
+            synchronized (this) {
+                runningSince = 0;
+            }
+            // more to do, go to the end of the pool queue
+            executor.execute(this);
+        }
+
+    }
+
+}
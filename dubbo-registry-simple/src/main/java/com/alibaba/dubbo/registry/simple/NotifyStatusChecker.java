@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.extension.Activate;
+import com.alibaba.dubbo.common.status.Status;
+import com.alibaba.dubbo.common.status.StatusChecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NotifyStatusChecker
+ * <p>
+ * Shows the notification lag of the slowest clients, try <code>status -l</code> in the registry telnet.
+ */
+@Activate
+public class NotifyStatusChecker implements StatusChecker {
+
+    private static final int TOP = 10;
+
+    public Status check() {
+        SimpleRegistryService registry = SimpleRegistryService.getInstance();
+        if (registry == null) {
+            return new Status(Status.Level.UNKNOWN);
+        }
+        List<Map.Entry<String, long[]>> lags = new ArrayList<Map.Entry<String, long[]>>(registry.getNotifyLags().entrySet());
+        Collections.sort(lags, new Comparator<Map.Entry<String, long[]>>() {
+            public int compare(Map.Entry<String, long[]> o1, Map.Entry<String, long[]> o2) {
+                long l1 = o1.getValue()[1];
+                long l2 = o2.getValue()[1];
+                return l1 > l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        StringBuilder buf = new StringBuilder();
+        buf.append("changes: ").append(registry.getNotifyChanges())
+                .append(", coalesced: ").append(registry.getNotifySaved())
+                .append(", collapsed: ").append(registry.getNotifyCollapsed())
+                .append(", dropped: ").append(registry.getNotifyDropped());
+        if (registry.getLeaseExpired() >= 0) {
+            buf.append(", leases: ").append(registry.getLeaseSize())
+                    .append(", lease expired: ").append(registry.getLeaseExpired());
+        }
+        for (int i = 0; i < lags.size() && i < TOP; i++) {
+            Map.Entry<String, long[]> entry = lags.get(i);
+            buf.append(i == 0 ? ", lag: " : ", ").append(entry.getKey())
+                    .append(" ").append(entry.getValue()[1]).append("ms/").append(entry.getValue()[0]);
+        }
+        return new Status(registry.getNotifyDropped() > 0 ? Status.Level.WARN : Status.Level.OK, buf.toString());
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
+import com.alibaba.dubbo.common.utils.UrlUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RegistryIndex
+ * <p>
+ * Registered urls by interface, then by category, group and version, so a lookup only visits the
+ * urls it returns. Queries with a wildcard interface scan every url, wildcard or excluded
+ * categories and wildcard groups or versions fall back to the buckets of the interface.
+ */
+class RegistryIndex {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Set<URL>>> services = new ConcurrentHashMap<String, ConcurrentMap<String, Set<URL>>>();
+
+    private static String getBucket(String category, String group, String version) {
+        return category + "/" + (group == null ? "" : group) + ":" + (version == null ? "" : version);
+    }
+
+    private static String getBucket(URL url) {
+        return getBucket(url.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY),
+                url.getParameter(Constants.GROUP_KEY), url.getParameter(Constants.VERSION_KEY));
+    }
+
+    /**
+     * @return whether the url was not indexed yet
+     */
+    public synchronized boolean add(URL url) {
+        String service = url.getServiceInterface();
+        ConcurrentMap<String, Set<URL>> buckets = services.get(service);
+        if (buckets == null) {
+            buckets = new ConcurrentHashMap<String, Set<URL>>();
+            services.put(service, buckets);
+        }
+        String bucket = getBucket(url);
+        Set<URL> urls = buckets.get(bucket);
+        if (urls == null) {
+            urls = new ConcurrentHashSet<URL>();
+            buckets.put(bucket, urls);
+        }
+        return urls.add(url);
+    }
+
+    /**
+     * @return whether the url was indexed
+     */
+    public synchronized boolean remove(URL url) {
+        String service = url.getServiceInterface();
+        ConcurrentMap<String, Set<URL>> buckets = services.get(service);
+        if (buckets == null) {
+            return false;
+        }
+        String bucket = getBucket(url);
+        Set<URL> urls = buckets.get(bucket);
+        if (urls == null || !urls.remove(url)) {
+            return false;
+        }
+        if (urls.isEmpty()) {
+            buckets.remove(bucket);
+            if (buckets.isEmpty()) {
+                services.remove(service);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the interfaces with registered urls.
+     */
+    public List<String> getServices() {
+        return new ArrayList<String>(services.keySet());
+    }
+
+    public List<URL> lookup(URL query) {
+        List<URL> result = new ArrayList<URL>();
+        String service = query.getServiceInterface();
+        if (Constants.ANY_VALUE.equals(service)) {
+            for (Map<String, Set<URL>> buckets : services.values()) {
+                match(query, buckets.values(), result);
+            }
+            return result;
+        }
+        Map<String, Set<URL>> buckets = services.get(service);
+        if (buckets == null) {
+            return result;
+        }
+        String category = query.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY);
+        String group = query.getParameter(Constants.GROUP_KEY);
+        String version = query.getParameter(Constants.VERSION_KEY);
+        if (isAnyCategory(category) || Constants.ANY_VALUE.equals(version)
+                || (group != null && group.contains(Constants.ANY_VALUE))) {
+            match(query, buckets.values(), result);
+            return result;
+        }
+        Set<String> keys = new LinkedHashSet<String>();
+        for (String c : Constants.COMMA_SPLIT_PATTERN.split(category)) {
+            if (group == null || group.length() == 0) {
+                keys.add(getBucket(c, null, version));
+            } else {
+                for (String g : Constants.COMMA_SPLIT_PATTERN.split(group)) {
+                    keys.add(getBucket(c, g, version));
+                }
+            }
+        }
+        for (String key : keys) {
+            Set<URL> urls = buckets.get(key);
+            if (urls != null) {
+                match(query, urls, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A category list with a wildcard or an exclusion can match categories it does not name.
+     */
+    private static boolean isAnyCategory(String category) {
+        for (String c : Constants.COMMA_SPLIT_PATTERN.split(category)) {
+            if (Constants.ANY_VALUE.equals(c) || c.startsWith(Constants.REMOVE_VALUE_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void match(URL query, Collection<Set<URL>> buckets, List<URL> result) {
+        for (Set<URL> urls : buckets) {
+            match(query, urls, result);
+        }
+    }
+
+    private static void match(URL query, Set<URL> urls, List<URL> result) {
+        for (URL url : urls) {
+            // the bucket narrows down interface, category, group and version, the rest is left to the usual rules
+            if (UrlUtils.isMatch(query, url)) {
+                result.add(url);
+            }
+        }
+    }
+
+}
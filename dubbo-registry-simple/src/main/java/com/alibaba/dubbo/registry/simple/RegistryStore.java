@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RegistryStore
+ * <p>
+ * Keeps the registered urls of every client on local disk: a snapshot of the whole state plus a
+ * journal of the registrations and unregistrations since. Both hold one url per line, replaying
+ * them is idempotent, so a change caught by a snapshot and the journal after it does no harm.
+ */
+class RegistryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryStore.class);
+
+    private static final String SNAPSHOT = "registry.snapshot";
+
+    private static final String JOURNAL = "registry.journal";
+
+    private static final String CHARSET = "UTF-8";
+
+    private final File directory;
+
+    private Writer journal;
+
+    private long journalSize;
+
+    RegistryStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the registered urls by client, as of the last change written.
+     */
+    public synchronized Map<String, Set<URL>> load() throws IOException {
+        Map<String, Set<URL>> registered = new HashMap<String, Set<URL>>();
+        File snapshot = new File(directory, SNAPSHOT);
+        if (snapshot.exists()) {
+            read(snapshot, registered, false);
+        }
+        File journalFile = new File(directory, JOURNAL);
+        if (journalFile.exists()) {
+            read(journalFile, registered, true);
+        }
+        return registered;
+    }
+
+    private static void read(File file, Map<String, Set<URL>> registered, boolean journal) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // a journal torn by a crash ends with a partial line
+                String[] parts = line.split(" ");
+                if (parts.length != (journal ? 3 : 2)) {
+                    continue;
+                }
+                boolean add = !journal || "+".equals(parts[0]);
+                String client = parts[journal ? 1 : 0];
+                URL url;
+                try {
+                    url = URL.valueOf(URL.decode(parts[journal ? 2 : 1]));
+                } catch (RuntimeException e) {
+                    logger.warn("Skip invalid line of " + file + ": " + line);
+                    continue;
+                }
+                Set<URL> urls = registered.get(client);
+                if (add) {
+                    if (urls == null) {
+                        urls = new LinkedHashSet<URL>();
+                        registered.put(client, urls);
+                    }
+                    urls.add(url);
+                } else if (urls != null) {
+                    urls.remove(url);
+                    if (urls.isEmpty()) {
+                        registered.remove(client);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static long countLines(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        InputStream input = new BufferedInputStream(new FileInputStream(file));
+        try {
+            long lines = 0;
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+            }
+            return lines;
+        } finally {
+            input.close();
+        }
+    }
+
+    public synchronized void append(String client, URL url, boolean add) {
+        try {
+            if (journal == null) {
+                directory.mkdirs();
+                File file = new File(directory, JOURNAL);
+                journalSize = countLines(file);
+                journal = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), CHARSET));
+            }
+            journal.write((add ? "+ " : "- ") + client + " " + URL.encode(url.toFullString()) + "\n");
+            journal.flush();
+            journalSize++;
+        } catch (IOException e) {
+            logger.warn("Failed to write registry journal in " + directory + ", cause: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return changes written to the journal since the last snapshot
+     */
+    public synchronized long getJournalSize() {
+        return journalSize;
+    }
+
+    /**
+     * Write the whole state and start a new journal.
+     */
+    public synchronized void snapshot(Map<String, Set<URL>> registered) throws IOException {
+        directory.mkdirs();
+        File tmp = new File(directory, SNAPSHOT + ".tmp");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), CHARSET));
+        try {
+            for (Map.Entry<String, Set<URL>> entry : registered.entrySet()) {
+                for (URL url : entry.getValue()) {
+                    writer.write(entry.getKey() + " " + URL.encode(url.toFullString()) + "\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        File snapshot = new File(directory, SNAPSHOT);
+        if (!tmp.renameTo(snapshot)) {
+            // not atomic on every platform, but the old journal still covers the gap until the delete
+            snapshot.delete();
+            if (!tmp.renameTo(snapshot)) {
+                throw new IOException("Failed to rename " + tmp + " to " + snapshot);
+            }
+        }
+        close();
+        new File(directory, JOURNAL).delete();
+        journalSize = 0;
+    }
+
+    public synchronized void close() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn(e.getMessage(), e);
+            }
+            journal = null;
+        }
+    }
+
+}
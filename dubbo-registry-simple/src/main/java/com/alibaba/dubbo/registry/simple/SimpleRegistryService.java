@@ -21,32 +21,114 @@ import com.alibaba.dubbo.common.URL;
 import com.alibaba.dubbo.common.logger.Logger;
 import com.alibaba.dubbo.common.logger.LoggerFactory;
 import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
+import com.alibaba.dubbo.common.utils.ConfigUtils;
+import com.alibaba.dubbo.common.utils.NamedThreadFactory;
 import com.alibaba.dubbo.common.utils.NetUtils;
 import com.alibaba.dubbo.common.utils.UrlUtils;
 import com.alibaba.dubbo.registry.NotifyListener;
 import com.alibaba.dubbo.registry.RegistryService;
 import com.alibaba.dubbo.registry.support.AbstractRegistry;
+import com.alibaba.dubbo.remoting.exchange.ExchangeChannel;
+import com.alibaba.dubbo.remoting.exchange.ExchangeServer;
+import com.alibaba.dubbo.remoting.exchange.support.header.HeartbeatHandler;
 import com.alibaba.dubbo.rpc.RpcContext;
+import com.alibaba.dubbo.rpc.protocol.dubbo.DubboProtocol;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * SimpleRegistryService
  */
-public class SimpleRegistryService extends AbstractRegistry {
+public class SimpleRegistryService extends AbstractRegistry implements BatchRegistryService {
 
+    /**
+     * Wildcard subscribers with delta=true get the changes since their last notification, each url tagged
+     * with delta=add or delta=remove and its revision. A delta=reset url means the subscriber fell behind
+     * the change log and is sent a full snapshot next.
+     */
+    public static final String DELTA_KEY = "delta";
+    public static final String REVISION_KEY = "revision";
+    public static final String DELTA_ADD = "add";
+    public static final String DELTA_REMOVE = "remove";
+    public static final String DELTA_RESET = "reset";
     private final static Logger logger = LoggerFactory.getLogger(SimpleRegistryService.class);
+    private static SimpleRegistryService INSTANCE;
+    private final RegistryIndex index = new RegistryIndex();
+    private final ChangeLog changeLog = new ChangeLog(Integer.parseInt(ConfigUtils.getProperty("dubbo.registry.changelog.size", "10000")));
+    // last revision sent to each delta subscriber, by subscribed url
+    private final ConcurrentMap<NotifyListener, ConcurrentMap<URL, Long>> deltaRevisions =
+            new ConcurrentHashMap<NotifyListener, ConcurrentMap<URL, Long>>();
+    private final SubscriberIndex subscribers = new SubscriberIndex();
+    private final NotifyCoalescer coalescer = new NotifyCoalescer(
+            Long.parseLong(ConfigUtils.getProperty("dubbo.registry.notify.window", "100")),
+            Long.parseLong(ConfigUtils.getProperty("dubbo.registry.notify.max-delay", "1000")),
+            new NotifyCoalescer.Flusher() {
+                public void flush(URL subscribed) {
+                    notifySubscribed(subscribed);
+                }
+            });
+    private final NotifyDispatcher dispatcher = new NotifyDispatcher(
+            Integer.parseInt(ConfigUtils.getProperty("dubbo.registry.notify.threads", String.valueOf(Math.max(2, Runtime.getRuntime().availableProcessors())))),
+            Integer.parseInt(ConfigUtils.getProperty("dubbo.registry.notify.listener-queue", "1000")),
+            Long.parseLong(ConfigUtils.getProperty("dubbo.registry.notify.max-lag", "60000")),
+            new NotifyDispatcher.DropHandler() {
+                public void dropped(NotifyListener listener, String reason) {
+                    dropListener(listener);
+                }
+            });
+    private final int snapshotChunk = Integer.parseInt(ConfigUtils.getProperty("dubbo.registry.notify.snapshot-chunk", "100"));
     private final ConcurrentMap<String, Set<URL>> remoteRegistered = new ConcurrentHashMap<String, Set<URL>>();
     private final ConcurrentMap<String, ConcurrentMap<URL, Set<NotifyListener>>> remoteSubscribed = new ConcurrentHashMap<String, ConcurrentMap<URL, Set<NotifyListener>>>();
+    // urls restored from the store, by the client that registered them, until registered again or expired
+    private final ConcurrentMap<URL, String> provisional = new ConcurrentHashMap<URL, String>();
+    private volatile RegistryStore store;
+    private ScheduledExecutorService storeExecutor;
+    // null unless dubbo.registry.lease is set
+    private final LeaseWheel leases;
+    private final AtomicLong leaseExpired = new AtomicLong();
 
     public SimpleRegistryService() {
         super(new URL("dubbo", NetUtils.getLocalHost(), 0, RegistryService.class.getName(), "file", "N/A"));
+        INSTANCE = this;
+        long lease = Long.parseLong(ConfigUtils.getProperty("dubbo.registry.lease", "0"));
+        if (lease > 0) {
+            leases = new LeaseWheel(lease, Long.parseLong(ConfigUtils.getProperty("dubbo.registry.lease.tick", "1000")), 512,
+                    new LeaseWheel.Handler() {
+                        public long getLastActive(String client) {
+                            return getLastRead(client);
+                        }
+
+                        public void expired(List<String> clients) {
+                            expireClients(clients);
+                        }
+                    });
+        } else {
+            leases = null;
+        }
+        String directory = ConfigUtils.getProperty("dubbo.registry.store.directory");
+        if (directory != null && directory.length() > 0) {
+            restore(new File(directory));
+        }
+    }
+
+    public static SimpleRegistryService getInstance() {
+        return INSTANCE;
     }
 
     public boolean isAvailable() {
@@ -54,37 +136,131 @@ public class SimpleRegistryService extends AbstractRegistry {
     }
 
     public List<URL> lookup(URL url) {
-        List<URL> urls = new ArrayList<URL>();
-        for (URL u : getRegistered()) {
-            if (UrlUtils.isMatch(url, u)) {
-                urls.add(u);
-            }
-        }
-        return urls;
+        return index.lookup(url);
     }
 
     public void register(URL url) {
         String client = RpcContext.getContext().getRemoteAddressString();
-        Set<URL> urls = remoteRegistered.get(client);
-        if (urls == null) {
-            remoteRegistered.putIfAbsent(client, new ConcurrentHashSet<URL>());
-            urls = remoteRegistered.get(client);
+        renew(client);
+        boolean added = false;
+        while (!added) {
+            Set<URL> urls = remoteRegistered.get(client);
+            if (urls == null) {
+                remoteRegistered.putIfAbsent(client, new ConcurrentHashSet<URL>());
+                urls = remoteRegistered.get(client);
+            }
+            // retry if the set was removed as empty meanwhile
+            synchronized (urls) {
+                urls.add(url);
+                added = remoteRegistered.get(client) == urls;
+            }
         }
-        urls.add(url);
         super.register(url);
+        addRegistered(url);
+        provisional.remove(url);
+        RegistryStore store = this.store;
+        if (store != null) {
+            store.append(client, url, true);
+        }
         registered(url);
     }
 
     public void unregister(URL url) {
         String client = RpcContext.getContext().getRemoteAddressString();
+        renew(client);
         Set<URL> urls = remoteRegistered.get(client);
         if (urls != null && urls.size() > 0) {
-            urls.remove(url);
+            synchronized (urls) {
+                urls.remove(url);
+                if (urls.isEmpty()) {
+                    remoteRegistered.remove(client, urls);
+                }
+            }
         }
         super.unregister(url);
+        removeRegistered(url);
+        provisional.remove(url);
+        RegistryStore store = this.store;
+        if (store != null) {
+            store.append(client, url, false);
+        }
         unregistered(url);
     }
 
+    public void update(List<URL> registers, List<URL> unregisters) {
+        String client = RpcContext.getContext().getRemoteAddressString();
+        renew(client);
+        if (registers == null) {
+            registers = new ArrayList<URL>();
+        }
+        if (unregisters == null) {
+            unregisters = new ArrayList<URL>();
+        }
+        Set<URL> urls = remoteRegistered.get(client);
+        if (urls != null && !unregisters.isEmpty()) {
+            synchronized (urls) {
+                urls.removeAll(unregisters);
+                if (urls.isEmpty() && registers.isEmpty()) {
+                    remoteRegistered.remove(client, urls);
+                }
+            }
+        }
+        boolean added = registers.isEmpty();
+        while (!added) {
+            urls = remoteRegistered.get(client);
+            if (urls == null) {
+                remoteRegistered.putIfAbsent(client, new ConcurrentHashSet<URL>());
+                urls = remoteRegistered.get(client);
+            }
+            synchronized (urls) {
+                urls.addAll(registers);
+                added = remoteRegistered.get(client) == urls;
+            }
+        }
+        Set<URL> keys = new HashSet<URL>();
+        // registered again, not a change
+        Set<URL> kept = new HashSet<URL>(registers);
+        List<URL> removed = new ArrayList<URL>();
+        List<URL> appended = new ArrayList<URL>();
+        // one revision for the batch, delta subscribers read the change log under the same lock
+        synchronized (changeLog) {
+            for (URL url : unregisters) {
+                if (kept.contains(url)) {
+                    continue;
+                }
+                super.unregister(url);
+                provisional.remove(url);
+                if (index.remove(url)) {
+                    removed.add(url);
+                }
+                keys.addAll(subscribers.match(url));
+            }
+            for (URL url : registers) {
+                super.register(url);
+                provisional.remove(url);
+                if (index.add(url)) {
+                    appended.add(url);
+                }
+                keys.addAll(subscribers.match(url));
+            }
+            changeLog.append(removed, appended);
+        }
+        RegistryStore store = this.store;
+        if (store != null) {
+            for (URL url : unregisters) {
+                if (!kept.contains(url)) {
+                    store.append(client, url, false);
+                }
+            }
+            for (URL url : registers) {
+                store.append(client, url, true);
+            }
+        }
+        for (URL key : keys) {
+            coalescer.changed(key);
+        }
+    }
+
     public void subscribe(URL url, NotifyListener listener) {
         if (getUrl().getPort() == 0) {
             URL registryUrl = RpcContext.getContext().getUrl();
@@ -92,21 +268,30 @@ public class SimpleRegistryService extends AbstractRegistry {
                     && RegistryService.class.getName().equals(registryUrl.getPath())) {
                 super.setUrl(registryUrl);
                 super.register(registryUrl);
+                addRegistered(registryUrl);
             }
         }
         String client = RpcContext.getContext().getRemoteAddressString();
-        ConcurrentMap<URL, Set<NotifyListener>> clientListeners = remoteSubscribed.get(client);
-        if (clientListeners == null) {
-            remoteSubscribed.putIfAbsent(client, new ConcurrentHashMap<URL, Set<NotifyListener>>());
-            clientListeners = remoteSubscribed.get(client);
-        }
-        Set<NotifyListener> listeners = clientListeners.get(url);
-        if (listeners == null) {
-            clientListeners.putIfAbsent(url, new ConcurrentHashSet<NotifyListener>());
-            listeners = clientListeners.get(url);
+        renew(client);
+        boolean added = false;
+        while (!added) {
+            ConcurrentMap<URL, Set<NotifyListener>> clientListeners = remoteSubscribed.get(client);
+            if (clientListeners == null) {
+                remoteSubscribed.putIfAbsent(client, new ConcurrentHashMap<URL, Set<NotifyListener>>());
+                clientListeners = remoteSubscribed.get(client);
+            }
+            synchronized (clientListeners) {
+                Set<NotifyListener> listeners = clientListeners.get(url);
+                if (listeners == null) {
+                    listeners = new ConcurrentHashSet<NotifyListener>();
+                    clientListeners.put(url, listeners);
+                }
+                listeners.add(listener);
+                added = remoteSubscribed.get(client) == clientListeners;
+            }
         }
-        listeners.add(listener);
         super.subscribe(url, listener);
+        subscribers.add(url);
         subscribed(url, listener);
     }
 
@@ -116,71 +301,519 @@ public class SimpleRegistryService extends AbstractRegistry {
             unregister(url);
         }
         String client = RpcContext.getContext().getRemoteAddressString();
+        removeSubscribed(client, url, listener);
+        super.unsubscribe(url, listener);
+        // the listener may still be subscribed to other urls, only the state of this one goes
+        dispatcher.remove(listener, url);
+        removeDeltaRevision(listener, url);
+        if (!isSubscribed(client, listener)) {
+            dispatcher.remove(listener);
+            deltaRevisions.remove(listener);
+        }
+        subscribers.removeIfUnused(url, getSubscribed().get(url));
+    }
+
+    private boolean isSubscribed(String client, NotifyListener listener) {
+        Map<URL, Set<NotifyListener>> clientListeners = remoteSubscribed.get(client);
+        if (clientListeners == null) {
+            return false;
+        }
+        synchronized (clientListeners) {
+            for (Set<NotifyListener> listeners : clientListeners.values()) {
+                if (listeners.contains(listener)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Long getDeltaRevision(NotifyListener listener, URL url) {
+        Map<URL, Long> revisions = deltaRevisions.get(listener);
+        return revisions == null ? null : revisions.get(url);
+    }
+
+    private void putDeltaRevision(NotifyListener listener, URL url, long revision) {
+        ConcurrentMap<URL, Long> revisions = deltaRevisions.get(listener);
+        if (revisions == null) {
+            deltaRevisions.putIfAbsent(listener, new ConcurrentHashMap<URL, Long>());
+            revisions = deltaRevisions.get(listener);
+        }
+        revisions.put(url, revision);
+    }
+
+    private void removeDeltaRevision(NotifyListener listener, URL url) {
+        Map<URL, Long> revisions = deltaRevisions.get(listener);
+        if (revisions != null) {
+            revisions.remove(url);
+        }
+    }
+
+    private void renew(String client) {
+        if (leases != null) {
+            leases.renew(client);
+        }
+    }
+
+    /**
+     * Heartbeats are answered by the exchange layer, the channel keeps the time of the last one read.
+     */
+    private static long getLastRead(String client) {
+        if (client.indexOf(':') < 0) {
+            return 0;
+        }
+        try {
+            InetSocketAddress address = NetUtils.toAddress(client);
+            for (ExchangeServer server : DubboProtocol.getDubboProtocol().getServers()) {
+                ExchangeChannel channel = server.getExchangeChannel(address);
+                if (channel != null) {
+                    Object timestamp = channel.getAttribute(HeartbeatHandler.KEY_READ_TIMESTAMP);
+                    if (timestamp instanceof Long) {
+                        return (Long) timestamp;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to get last read of " + client + ", cause: " + e.getMessage(), e);
+        }
+        return 0;
+    }
+
+    private void expireClients(List<String> clients) {
+        Set<URL> keys = new HashSet<URL>();
+        for (String client : clients) {
+            removeClient(client, keys);
+        }
+        leaseExpired.addAndGet(clients.size());
+        logger.warn("Lease expired of " + clients.size() + " clients " + clients + ", notify " + keys.size() + " subscriptions");
+        for (URL key : keys) {
+            coalescer.changed(key);
+        }
+    }
+
+    /**
+     * Remove the urls and the subscriptions of a client, collecting the subscriptions to notify.
+     */
+    private void removeClient(String client, Set<URL> keys) {
+        Set<URL> urls = remoteRegistered.get(client);
+        if (urls != null) {
+            synchronized (urls) {
+                remoteRegistered.remove(client, urls);
+            }
+            RegistryStore store = this.store;
+            for (URL url : urls) {
+                super.unregister(url);
+                removeRegistered(url);
+                provisional.remove(url);
+                if (store != null) {
+                    store.append(client, url, false);
+                }
+                keys.addAll(subscribers.match(url));
+            }
+        }
+        Map<URL, Set<NotifyListener>> clientListeners = remoteSubscribed.get(client);
+        if (clientListeners != null) {
+            synchronized (clientListeners) {
+                remoteSubscribed.remove(client, clientListeners);
+            }
+            for (Map.Entry<URL, Set<NotifyListener>> entry : clientListeners.entrySet()) {
+                for (NotifyListener listener : entry.getValue()) {
+                    super.unsubscribe(entry.getKey(), listener);
+                    dispatcher.remove(listener);
+                    deltaRevisions.remove(listener);
+                }
+                subscribers.removeIfUnused(entry.getKey(), getSubscribed().get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * @return clients with urls registered or subscribed
+     */
+    Set<String> getClients() {
+        Set<String> clients = new HashSet<String>(remoteRegistered.keySet());
+        clients.addAll(remoteSubscribed.keySet());
+        return clients;
+    }
+
+    /**
+     * @return clients removed for their lease expired, -1 without leases
+     */
+    public long getLeaseExpired() {
+        return leases == null ? -1 : leaseExpired.get();
+    }
+
+    public int getLeaseSize() {
+        return leases == null ? 0 : leases.size();
+    }
+
+    private void removeSubscribed(String client, URL url, NotifyListener listener) {
         Map<URL, Set<NotifyListener>> clientListeners = remoteSubscribed.get(client);
-        if (clientListeners != null && clientListeners.size() > 0) {
+        if (clientListeners == null) {
+            return;
+        }
+        synchronized (clientListeners) {
             Set<NotifyListener> listeners = clientListeners.get(url);
-            if (listeners != null && listeners.size() > 0) {
+            if (listeners != null) {
                 listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    clientListeners.remove(url);
+                }
+            }
+            if (clientListeners.isEmpty()) {
+                remoteSubscribed.remove(client, clientListeners);
             }
         }
     }
 
     protected void registered(URL url) {
-        for (Map.Entry<URL, Set<NotifyListener>> entry : getSubscribed().entrySet()) {
-            URL key = entry.getKey();
-            if (UrlUtils.isMatch(key, url)) {
-                List<URL> list = lookup(key);
-                for (NotifyListener listener : entry.getValue()) {
-                    listener.notify(list);
+        notifySubscribers(url);
+    }
+
+    protected void unregistered(URL url) {
+        notifySubscribers(url);
+    }
+
+    private void addRegistered(URL url) {
+        // index and change log in the same order
+        synchronized (changeLog) {
+            if (index.add(url)) {
+                changeLog.append(url, true);
+            }
+        }
+    }
+
+    private void removeRegistered(URL url) {
+        synchronized (changeLog) {
+            if (index.remove(url)) {
+                changeLog.append(url, false);
+            }
+        }
+    }
+
+    /**
+     * Serve the urls of the last run right away, each provisional until its owner registers it again.
+     * The ones left after the grace period are removed at once.
+     */
+    private void restore(File directory) {
+        final RegistryStore store = new RegistryStore(directory);
+        this.store = store;
+        try {
+            Map<String, Set<URL>> restored = store.load();
+            for (Map.Entry<String, Set<URL>> entry : restored.entrySet()) {
+                for (URL url : entry.getValue()) {
+                    provisional.put(url, entry.getKey());
+                    super.register(url);
+                    addRegistered(url);
+                }
+            }
+            snapshot(store);
+        } catch (IOException e) {
+            logger.warn("Failed to restore registry from " + directory + ", cause: " + e.getMessage(), e);
+        }
+        long interval = Long.parseLong(ConfigUtils.getProperty("dubbo.registry.store.snapshot-interval", "60000"));
+        long gracePeriod = Long.parseLong(ConfigUtils.getProperty("dubbo.registry.store.grace-period", "60000"));
+        storeExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DubboRegistryStore", true));
+        storeExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                if (store.getJournalSize() > 0) {
+                    try {
+                        snapshot(store);
+                    } catch (Throwable e) {
+                        logger.warn("Failed to snapshot registry, cause: " + e.getMessage(), e);
+                    }
                 }
             }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        if (!provisional.isEmpty()) {
+            logger.info("Restored " + provisional.size() + " urls from " + directory + ", provisional for " + gracePeriod + "ms");
+            storeExecutor.schedule(new Runnable() {
+                public void run() {
+                    try {
+                        expireProvisional(store);
+                    } catch (Throwable e) {
+                        logger.warn("Failed to expire restored urls, cause: " + e.getMessage(), e);
+                    }
+                }
+            }, gracePeriod, TimeUnit.MILLISECONDS);
         }
     }
 
-    protected void unregistered(URL url) {
-        for (Map.Entry<URL, Set<NotifyListener>> entry : getSubscribed().entrySet()) {
-            URL key = entry.getKey();
-            if (UrlUtils.isMatch(key, url)) {
-                List<URL> list = lookup(key);
-                for (NotifyListener listener : entry.getValue()) {
+    private void snapshot(RegistryStore store) throws IOException {
+        // no change can be journaled between reading the state and starting the new journal
+        synchronized (store) {
+            Map<String, Set<URL>> state = new HashMap<String, Set<URL>>();
+            for (Map.Entry<String, Set<URL>> entry : remoteRegistered.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    state.put(entry.getKey(), new HashSet<URL>(entry.getValue()));
+                }
+            }
+            for (Map.Entry<URL, String> entry : provisional.entrySet()) {
+                Set<URL> urls = state.get(entry.getValue());
+                if (urls == null) {
+                    urls = new HashSet<URL>();
+                    state.put(entry.getValue(), urls);
+                }
+                urls.add(entry.getKey());
+            }
+            store.snapshot(state);
+        }
+    }
+
+    private void expireProvisional(RegistryStore store) {
+        Set<URL> keys = new HashSet<URL>();
+        int expired = 0;
+        // a client registering one of them now adds it back to the index after this
+        synchronized (changeLog) {
+            Set<URL> owned = new HashSet<URL>();
+            for (Set<URL> urls : remoteRegistered.values()) {
+                owned.addAll(urls);
+            }
+            for (Map.Entry<URL, String> entry : provisional.entrySet()) {
+                URL url = entry.getKey();
+                if (!provisional.remove(url, entry.getValue()) || owned.contains(url)) {
+                    continue;
+                }
+                super.unregister(url);
+                removeRegistered(url);
+                store.append(entry.getValue(), url, false);
+                keys.addAll(subscribers.match(url));
+                expired++;
+            }
+        }
+        logger.info("Expired " + expired + " restored urls not registered again, notify " + keys.size() + " subscriptions");
+        for (URL key : keys) {
+            coalescer.changed(key);
+        }
+    }
+
+    public int getProvisionalSize() {
+        return provisional.size();
+    }
+
+    public long getRevision() {
+        return changeLog.getRevision();
+    }
+
+    public long getRevision(String service) {
+        return changeLog.getRevision(service);
+    }
+
+    private void notifySubscribers(URL url) {
+        for (URL key : subscribers.match(url)) {
+            coalescer.changed(key);
+        }
+    }
+
+    private void notifySubscribed(final URL key) {
+        Set<NotifyListener> listeners = getSubscribed().get(key);
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+        if (isDelta(key)) {
+            for (final NotifyListener listener : listeners) {
+                // the changes are read when the notification runs, so a collapsed one loses nothing
+                dispatcher.execute(listener, key, new Runnable() {
+                    public void run() {
+                        deliverDelta(key, listener);
+                    }
+                });
+            }
+            return;
+        }
+        List<URL> list = lookup(key);
+        for (NotifyListener listener : listeners) {
+            deliver(key, listener, list);
+        }
+    }
+
+    private static boolean isDelta(URL url) {
+        return Constants.ANY_VALUE.equals(url.getServiceInterface()) && url.getParameter(DELTA_KEY, false);
+    }
+
+    private void deliverDelta(URL key, NotifyListener listener) {
+        Long since = getDeltaRevision(listener, key);
+        if (since == null) {
+            return;
+        }
+        List<ChangeLog.Change> changes = changeLog.getChanges(since);
+        if (changes == null) {
+            long revision = changeLog.getRevision();
+            putDeltaRevision(listener, key, revision);
+            logger.info("Notify " + listener + " behind the change log since revision " + since + ", send snapshot of revision " + revision);
+            listener.notify(Arrays.asList(key.setProtocol(Constants.EMPTY_PROTOCOL)
+                    .addParameters(DELTA_KEY, DELTA_RESET, REVISION_KEY, String.valueOf(revision))));
+            sendSnapshot(key, listener);
+            return;
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<URL> list = new ArrayList<URL>();
+        for (ChangeLog.Change change : changes) {
+            if (UrlUtils.isMatch(key, change.getUrl())) {
+                list.add(change.getUrl().addParameters(DELTA_KEY, change.isAdded() ? DELTA_ADD : DELTA_REMOVE,
+                        REVISION_KEY, String.valueOf(change.getRevision())));
+            }
+        }
+        putDeltaRevision(listener, key, changes.get(changes.size() - 1).getRevision());
+        if (!list.isEmpty()) {
+            listener.notify(list);
+        }
+    }
+
+    private void deliver(final URL key, final NotifyListener listener, final List<URL> list) {
+        dispatcher.execute(listener, key, new Runnable() {
+            public void run() {
+                try {
                     listener.notify(list);
+                } catch (Throwable e) {
+                    logger.warn("Discard to notify " + key.getServiceKey() + " to listener " + listener);
+                }
+            }
+        });
+    }
+
+    /**
+     * Unsubscribe a listener the dispatcher gave up on, its client stays registered.
+     */
+    private void dropListener(NotifyListener listener) {
+        deltaRevisions.remove(listener);
+        for (Map.Entry<URL, Set<NotifyListener>> entry : getSubscribed().entrySet()) {
+            if (entry.getValue().contains(listener)) {
+                super.unsubscribe(entry.getKey(), listener);
+                subscribers.removeIfUnused(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, ConcurrentMap<URL, Set<NotifyListener>>> entry : remoteSubscribed.entrySet()) {
+            for (Map.Entry<URL, Set<NotifyListener>> listeners : entry.getValue().entrySet()) {
+                if (listeners.getValue().contains(listener)) {
+                    removeSubscribed(entry.getKey(), listeners.getKey(), listener);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return pending notifications and the lag in milliseconds of the slowest listener, by client.
+     */
+    public Map<String, long[]> getNotifyLags() {
+        Map<String, long[]> lags = new TreeMap<String, long[]>();
+        for (Map.Entry<String, ConcurrentMap<URL, Set<NotifyListener>>> entry : remoteSubscribed.entrySet()) {
+            long[] clientLag = null;
+            for (Set<NotifyListener> listeners : entry.getValue().values()) {
+                for (NotifyListener listener : listeners) {
+                    long[] lag = dispatcher.getLag(listener);
+                    if (lag != null) {
+                        if (clientLag == null) {
+                            clientLag = new long[2];
+                        }
+                        clientLag[0] += lag[0];
+                        clientLag[1] = Math.max(clientLag[1], lag[1]);
+                    }
                 }
             }
+            if (clientLag != null) {
+                lags.put(entry.getKey(), clientLag);
+            }
+        }
+        return lags;
+    }
+
+    public long getNotifyCollapsed() {
+        return dispatcher.getCollapsed();
+    }
+
+    public long getNotifyDropped() {
+        return dispatcher.getDropped();
+    }
+
+    public long getNotifyChanges() {
+        return coalescer.getChanges();
+    }
+
+    public long getNotifySaved() {
+        return coalescer.getSaved();
+    }
+
+    @Override
+    public void destroy() {
+        // before super.destroy() unregisters everything, which must not reach the journal
+        RegistryStore store = this.store;
+        if (store != null) {
+            this.store = null;
+            storeExecutor.shutdown();
+            try {
+                snapshot(store);
+            } catch (IOException e) {
+                logger.warn("Failed to snapshot registry, cause: " + e.getMessage(), e);
+            }
+            store.close();
+        }
+        super.destroy();
+        coalescer.destroy();
+        dispatcher.destroy();
+        if (leases != null) {
+            leases.destroy();
         }
     }
 
     protected void subscribed(final URL url, final NotifyListener listener) {
         if (Constants.ANY_VALUE.equals(url.getServiceInterface())) {
-            new Thread(new Runnable() {
+            if (isDelta(url)) {
+                // changes after this revision are sent as deltas, replaying some the snapshot already has is harmless
+                putDeltaRevision(listener, url, changeLog.getRevision());
+            }
+            sendSnapshot(url, listener);
+        } else {
+            // on the subscribing thread, a consumer checks its providers right after subscribe returns
+            dispatcher.executeNow(listener, url, new Runnable() {
+                public void run() {
+                    try {
+                        listener.notify(lookup(url));
+                    } catch (Throwable e) {
+                        logger.warn("Discard to notify " + url.getServiceKey() + " to listener " + listener);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Send the registered urls of every service to a wildcard subscriber, in chunks of services,
+     * each looked up when its turn comes.
+     */
+    private void sendSnapshot(final URL url, final NotifyListener listener) {
+        final boolean delta = isDelta(url);
+        List<String> services = index.getServices();
+        for (int i = 0; i < services.size(); i += snapshotChunk) {
+            final List<String> chunk = services.subList(i, Math.min(services.size(), i + snapshotChunk));
+            dispatcher.execute(listener, null, new Runnable() {
                 public void run() {
-                    Map<String, List<URL>> map = new HashMap<String, List<URL>>();
-                    for (URL u : getRegistered()) {
-                        if (UrlUtils.isMatch(url, u)) {
-                            String service = u.getServiceInterface();
-                            List<URL> list = map.get(service);
-                            if (list == null) {
-                                list = new ArrayList<URL>();
-                                map.put(service, list);
+                    Set<NotifyListener> listeners = getSubscribed().get(url);
+                    if (listeners == null || !listeners.contains(listener)) {
+                        // unsubscribed meanwhile
+                        return;
+                    }
+                    for (String service : chunk) {
+                        String revision = String.valueOf(changeLog.getRevision(service));
+                        List<URL> list = lookup(url.addParameter(Constants.INTERFACE_KEY, service));
+                        if (list.isEmpty()) {
+                            continue;
+                        }
+                        if (delta) {
+                            for (int j = 0; j < list.size(); j++) {
+                                list.set(j, list.get(j).addParameter(REVISION_KEY, revision));
                             }
-                            list.add(u);
                         }
-                    }
-                    for (List<URL> list : map.values()) {
                         try {
                             listener.notify(list);
                         } catch (Throwable e) {
-                            logger.warn("Discard to notify " + url.getServiceKey() + " to listener " + listener);
+                            logger.warn("Discard to notify " + service + " to listener " + listener);
                         }
                     }
                 }
-            }, "DubboMonitorNotifier").start();
-        } else {
-            List<URL> list = lookup(url);
-            try {
-                listener.notify(list);
-            } catch (Throwable e) {
-                logger.warn("Discard to notify " + url.getServiceKey() + " to listener " + listener);
-            }
+            });
         }
     }
 
@@ -189,20 +822,14 @@ public class SimpleRegistryService extends AbstractRegistry {
         if (logger.isInfoEnabled()) {
             logger.info("Disconnected " + client);
         }
-        Set<URL> urls = remoteRegistered.get(client);
-        if (urls != null && urls.size() > 0) {
-            for (URL url : urls) {
-                unregister(url);
-            }
+        if (leases != null) {
+            leases.cancel(client);
         }
-        Map<URL, Set<NotifyListener>> listeners = remoteSubscribed.get(client);
-        if (listeners != null && listeners.size() > 0) {
-            for (Map.Entry<URL, Set<NotifyListener>> entry : listeners.entrySet()) {
-                URL url = entry.getKey();
-                for (NotifyListener listener : entry.getValue()) {
-                    unsubscribe(url, listener);
-                }
-            }
+        // all urls at once, each subscription affected notified once
+        Set<URL> keys = new HashSet<URL>();
+        removeClient(client, keys);
+        for (URL key : keys) {
+            coalescer.changed(key);
         }
     }
 
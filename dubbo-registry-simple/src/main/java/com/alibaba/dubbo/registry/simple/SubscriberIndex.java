@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.ConcurrentHashSet;
+import com.alibaba.dubbo.common.utils.UrlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SubscriberIndex
+ * <p>
+ * Subscribed urls by interface, plus a separate set for the few wildcard subscribers (monitors,
+ * admins), so a registration is only matched against the subscriptions of its own service.
+ */
+class SubscriberIndex {
+
+    private final ConcurrentMap<String, Set<URL>> services = new ConcurrentHashMap<String, Set<URL>>();
+
+    private final Set<URL> wildcards = new ConcurrentHashSet<URL>();
+
+    public synchronized void add(URL subscribed) {
+        String service = subscribed.getServiceInterface();
+        if (Constants.ANY_VALUE.equals(service)) {
+            wildcards.add(subscribed);
+            return;
+        }
+        Set<URL> urls = services.get(service);
+        if (urls == null) {
+            urls = new ConcurrentHashSet<URL>();
+            services.put(service, urls);
+        }
+        urls.add(subscribed);
+    }
+
+    /**
+     * Remove the subscribed url once the last listener is gone, checked under the same lock as {@link #add(URL)}.
+     */
+    public synchronized void removeIfUnused(URL subscribed, Set<?> listeners) {
+        if (listeners != null && !listeners.isEmpty()) {
+            return;
+        }
+        String service = subscribed.getServiceInterface();
+        if (Constants.ANY_VALUE.equals(service)) {
+            wildcards.remove(subscribed);
+            return;
+        }
+        Set<URL> urls = services.get(service);
+        if (urls != null && urls.remove(subscribed) && urls.isEmpty()) {
+            services.remove(service);
+        }
+    }
+
+    /**
+     * @return the subscribed urls interested in the registered url.
+     */
+    public List<URL> match(URL registered) {
+        List<URL> result = new ArrayList<URL>();
+        Set<URL> urls = services.get(registered.getServiceInterface());
+        if (urls != null) {
+            for (URL subscribed : urls) {
+                if (UrlUtils.isMatch(subscribed, registered)) {
+                    result.add(subscribed);
+                }
+            }
+        }
+        for (URL subscribed : wildcards) {
+            if (UrlUtils.isMatch(subscribed, registered)) {
+                result.add(subscribed);
+            }
+        }
+        return result;
+    }
+
+    int getServiceCount() {
+        return services.size();
+    }
+
+    int getWildcardCount() {
+        return wildcards.size();
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ChangeLogTest
+ */
+public class ChangeLogTest {
+
+    @Test
+    public void testChanges() {
+        ChangeLog log = new ChangeLog(3);
+        for (int i = 0; i < 5; i++) {
+            log.append(RegisterStormBenchmark.getProvider(i % 2, i), i != 3);
+        }
+        Assert.assertEquals(5, log.getRevision());
+        Assert.assertEquals(5, log.getRevision(RegisterStormBenchmark.getService(0)));
+        Assert.assertEquals(4, log.getRevision(RegisterStormBenchmark.getService(1)));
+        Assert.assertEquals(0, log.getRevision(RegisterStormBenchmark.getService(2)));
+        Assert.assertNull(log.getChanges(1));
+        List<ChangeLog.Change> changes = log.getChanges(2);
+        Assert.assertEquals(3, changes.size());
+        Assert.assertEquals(3, changes.get(0).getRevision());
+        Assert.assertTrue(changes.get(0).isAdded());
+        Assert.assertFalse(changes.get(1).isAdded());
+        Assert.assertEquals(RegisterStormBenchmark.getProvider(0, 4), changes.get(2).getUrl());
+        Assert.assertTrue(log.getChanges(5).isEmpty());
+    }
+
+    @Test
+    public void testBatch() {
+        ChangeLog log = new ChangeLog(4);
+        log.append(RegisterStormBenchmark.getProvider(0, 0), true);
+        Assert.assertEquals(2, log.append(Arrays.asList(RegisterStormBenchmark.getProvider(0, 0)),
+                Arrays.asList(RegisterStormBenchmark.getProvider(0, 1), RegisterStormBenchmark.getProvider(1, 0))));
+        Assert.assertEquals(2, log.append(new ArrayList<URL>(), new ArrayList<URL>()));
+        List<ChangeLog.Change> changes = log.getChanges(1);
+        Assert.assertEquals(3, changes.size());
+        Assert.assertFalse(changes.get(0).isAdded());
+        for (ChangeLog.Change change : changes) {
+            Assert.assertEquals(2, change.getRevision());
+        }
+        Assert.assertTrue(log.getChanges(2).isEmpty());
+        log.append(RegisterStormBenchmark.getProvider(2, 0), true);
+        Assert.assertEquals(4, log.getChanges(1).size());
+        // pushes out the first change of the batch, the rest of it is not enough
+        log.append(RegisterStormBenchmark.getProvider(3, 0), true);
+        Assert.assertNull(log.getChanges(1));
+        Assert.assertEquals(2, log.getChanges(2).size());
+    }
+
+    @Test
+    public void testPruneServices() {
+        ChangeLog log = new ChangeLog(2);
+        URL foo = RegisterStormBenchmark.getProvider(0, 0);
+        URL bar = RegisterStormBenchmark.getProvider(1, 0);
+        log.append(foo, true);
+        log.append(foo, false);
+        log.append(bar, true);
+        // the removal of foo is still in the log
+        Assert.assertEquals(2, log.getRevision(RegisterStormBenchmark.getService(0)));
+        log.append(bar, false);
+        Assert.assertEquals(0, log.getRevision(RegisterStormBenchmark.getService(0)));
+        Assert.assertEquals(4, log.getRevision(RegisterStormBenchmark.getService(1)));
+        log.append(bar, true);
+        log.append(RegisterStormBenchmark.getProvider(2, 0), true);
+        // bar has a url again
+        Assert.assertEquals(5, log.getRevision(RegisterStormBenchmark.getService(1)));
+        for (int i = 0; i < 10; i++) {
+            log.append(RegisterStormBenchmark.getProvider(2, i + 1), true);
+        }
+        Assert.assertEquals(5, log.getRevision(RegisterStormBenchmark.getService(1)));
+        Assert.assertEquals(2, log.getServiceCount());
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LeaseWheelTest
+ */
+public class LeaseWheelTest {
+
+    @Test
+    public void testExpire() throws Exception {
+        final List<List<String>> expired = new CopyOnWriteArrayList<List<String>>();
+        final long started = System.currentTimeMillis();
+        // wheel of 8 ticks is shorter than the lease, so leases are visited before they are due
+        LeaseWheel leases = new LeaseWheel(300, 20, 8, new LeaseWheel.Handler() {
+            public long getLastActive(String client) {
+                return "heartbeat".equals(client) ? System.currentTimeMillis() : started;
+            }
+
+            public void expired(List<String> clients) {
+                expired.add(clients);
+            }
+        });
+        for (int i = 0; i < 1000; i++) {
+            leases.renew("client" + i);
+        }
+        leases.renew("renewed");
+        leases.renew("heartbeat");
+        leases.renew("cancelled");
+        leases.cancel("cancelled");
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100);
+            leases.renew("renewed");
+        }
+        Assert.assertEquals(2, leases.size());
+        int count = 0;
+        for (List<String> clients : expired) {
+            Assert.assertFalse(clients.contains("renewed"));
+            Assert.assertFalse(clients.contains("cancelled"));
+            count += clients.size();
+        }
+        Assert.assertEquals(1000, count);
+        // expired together, a batch per tick at most
+        Assert.assertTrue(expired.size() <= 3);
+        leases.destroy();
+    }
+
+}
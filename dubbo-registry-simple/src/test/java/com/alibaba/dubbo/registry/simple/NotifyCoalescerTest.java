@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * NotifyCoalescerTest
+ */
+public class NotifyCoalescerTest {
+
+    private final List<URL> flushed = Collections.synchronizedList(new ArrayList<URL>());
+
+    private final NotifyCoalescer.Flusher flusher = new NotifyCoalescer.Flusher() {
+        public void flush(URL subscribed) {
+            flushed.add(subscribed);
+        }
+    };
+
+    @Test
+    public void testCoalesce() throws Exception {
+        NotifyCoalescer coalescer = new NotifyCoalescer(100, 1000, flusher);
+        URL foo = URL.valueOf("consumer://10.2.0.1/com.foo.FooService");
+        URL bar = URL.valueOf("consumer://10.2.0.1/com.foo.BarService");
+        for (int i = 0; i < 10; i++) {
+            coalescer.changed(foo);
+            coalescer.changed(bar);
+        }
+        Assert.assertTrue(flushed.isEmpty());
+        Thread.sleep(500);
+        Assert.assertEquals(2, flushed.size());
+        Assert.assertEquals(20, coalescer.getChanges());
+        Assert.assertEquals(18, coalescer.getSaved());
+        coalescer.destroy();
+    }
+
+    @Test
+    public void testMaxDelay() throws Exception {
+        NotifyCoalescer coalescer = new NotifyCoalescer(100, 200, flusher);
+        URL foo = URL.valueOf("consumer://10.2.0.1/com.foo.FooService");
+        long start = System.currentTimeMillis();
+        while (flushed.isEmpty() && System.currentTimeMillis() - start < 5000) {
+            coalescer.changed(foo);
+            Thread.sleep(20);
+        }
+        // never quiet for a window, flushed by the max delay
+        Assert.assertEquals(1, flushed.size());
+        coalescer.destroy();
+    }
+
+    @Test
+    public void testNoWindow() {
+        NotifyCoalescer coalescer = new NotifyCoalescer(0, 0, flusher);
+        URL foo = URL.valueOf("consumer://10.2.0.1/com.foo.FooService");
+        coalescer.changed(foo);
+        coalescer.changed(foo);
+        Assert.assertEquals(2, flushed.size());
+        Assert.assertEquals(0, coalescer.getSaved());
+    }
+
+}
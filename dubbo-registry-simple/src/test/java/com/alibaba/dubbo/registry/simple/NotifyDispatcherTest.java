@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.registry.NotifyListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NotifyDispatcherTest
+ */
+public class NotifyDispatcherTest {
+
+    private final List<NotifyListener> dropped = Collections.synchronizedList(new ArrayList<NotifyListener>());
+
+    private final NotifyDispatcher.DropHandler dropHandler = new NotifyDispatcher.DropHandler() {
+        public void dropped(NotifyListener listener, String reason) {
+            dropped.add(listener);
+        }
+    };
+
+    @Test
+    public void testSerialPerListener() throws Exception {
+        NotifyDispatcher dispatcher = new NotifyDispatcher(2, Integer.MAX_VALUE, Long.MAX_VALUE, dropHandler);
+        int count = 2000;
+        final CountDownLatch latch = new CountDownLatch(count * 2);
+        final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+        NotifyListener firstListener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+            }
+        };
+        NotifyListener secondListener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            final int n = i;
+            dispatcher.execute(firstListener, null, new Runnable() {
+                public void run() {
+                    first.add(n);
+                    latch.countDown();
+                }
+            });
+            dispatcher.execute(secondListener, null, new Runnable() {
+                public void run() {
+                    second.add(n);
+                    latch.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, first.get(i).intValue());
+            Assert.assertEquals(i, second.get(i).intValue());
+        }
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void testExecuteNow() throws Exception {
+        final NotifyDispatcher dispatcher = new NotifyDispatcher(1, Integer.MAX_VALUE, Long.MAX_VALUE, dropHandler);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        final NotifyListener listener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+            }
+        };
+        dispatcher.execute(listener, "block", new Runnable() {
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread.sleep(100);
+        dispatcher.execute(listener, "foo", new Runnable() {
+            public void run() {
+                delivered.add("stale");
+            }
+        });
+        dispatcher.execute(listener, "bar", new Runnable() {
+            public void run() {
+                delivered.add("bar");
+            }
+        });
+        Thread thread = new Thread() {
+            public void run() {
+                dispatcher.executeNow(listener, "foo", new Runnable() {
+                    public void run() {
+                        delivered.add("now");
+                    }
+                });
+            }
+        };
+        thread.start();
+        Thread.sleep(100);
+        // waits for the task in progress
+        Assert.assertTrue(thread.isAlive());
+        Assert.assertTrue(delivered.isEmpty());
+        blocked.countDown();
+        thread.join(5000);
+        long start = System.currentTimeMillis();
+        while (delivered.size() < 2 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(Arrays.asList("now", "bar"), delivered);
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void testCollapseAndDrop() throws Exception {
+        NotifyDispatcher dispatcher = new NotifyDispatcher(1, 3, Long.MAX_VALUE, dropHandler);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        NotifyListener listener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+            }
+        };
+        dispatcher.execute(listener, "block", new Runnable() {
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread.sleep(100);
+        for (int i = 0; i < 5; i++) {
+            final String state = "foo" + i;
+            dispatcher.execute(listener, "foo", new Runnable() {
+                public void run() {
+                    delivered.add(state);
+                }
+            });
+        }
+        dispatcher.execute(listener, "bar", new Runnable() {
+            public void run() {
+                delivered.add("bar");
+            }
+        });
+        Assert.assertEquals(2, dispatcher.getLag(listener)[0]);
+        Assert.assertEquals(4, dispatcher.getCollapsed());
+        blocked.countDown();
+        long start = System.currentTimeMillis();
+        while (delivered.size() < 2 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(Arrays.asList("foo4", "bar"), delivered);
+
+        final CountDownLatch stuck = new CountDownLatch(1);
+        dispatcher.execute(listener, "stuck", new Runnable() {
+            public void run() {
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread.sleep(100);
+        for (int i = 0; i < 4; i++) {
+            dispatcher.execute(listener, null, new Runnable() {
+                public void run() {
+                }
+            });
+        }
+        Assert.assertEquals(Arrays.asList(listener), dropped);
+        Assert.assertNull(dispatcher.getLag(listener));
+        stuck.countDown();
+        dispatcher.destroy();
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Level;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.registry.NotifyListener;
+import com.alibaba.dubbo.rpc.RpcContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RegisterStormBenchmark
+ * <p>
+ * Subscribes consumers to every service, then registers and unregisters all providers the way a
+ * deploy wave does, and prints the time and notifications per phase. Set
+ * <code>-Ddubbo.registry.notify.window=0</code> to notify every change.
+ * <p>
+ * Usage: <code>RegisterStormBenchmark [services] [providers per service] [consumers per service]</code>
+ */
+public class RegisterStormBenchmark {
+
+    private final AtomicLong notifications = new AtomicLong();
+
+    private final AtomicLong notifiedUrls = new AtomicLong();
+
+    private final NotifyListener listener = new NotifyListener() {
+        public void notify(List<URL> urls) {
+            notifications.incrementAndGet();
+            notifiedUrls.addAndGet(urls.size());
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int services = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int providers = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int consumers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        LoggerFactory.setLevel(Level.WARN);
+        new RegisterStormBenchmark().run(services, providers, consumers);
+    }
+
+    static String getService(int index) {
+        return "com.alibaba.dubbo.benchmark.DemoService" + index;
+    }
+
+    static String getHost(int network, int index) {
+        return "10." + network + "." + (index / 250) + "." + (index % 250 + 1);
+    }
+
+    static URL getProvider(int service, int provider) {
+        return URL.valueOf("dubbo://" + getHost(1, provider) + ":20880/" + getService(service)
+                + "?anyhost=true&application=provider" + service + "&interface=" + getService(service)
+                + "&methods=sayHello,sayGoodbye&side=provider&dubbo=2.6.0");
+    }
+
+    static URL getConsumer(int service, int consumer) {
+        return URL.valueOf("consumer://" + getHost(2, consumer) + "/" + getService(service)
+                + "?application=consumer" + service + "&interface=" + getService(service)
+                + "&category=" + Constants.PROVIDERS_CATEGORY + "," + Constants.CONFIGURATORS_CATEGORY + "," + Constants.ROUTERS_CATEGORY
+                + "&side=consumer&dubbo=2.6.0");
+    }
+
+    static void setClient(String host) {
+        RpcContext.getContext().setRemoteAddress(host, 30000);
+    }
+
+    void run(int services, int providers, int consumers) throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        List<URL> urls = new ArrayList<URL>(services * providers);
+        for (int s = 0; s < services; s++) {
+            for (int p = 0; p < providers; p++) {
+                urls.add(getProvider(s, p));
+            }
+        }
+        long start = System.nanoTime();
+        for (int s = 0; s < services; s++) {
+            for (int c = 0; c < consumers; c++) {
+                setClient(getHost(2, c));
+                registry.subscribe(getConsumer(s, c), listener);
+            }
+        }
+        report("subscribe", services * consumers, start);
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            for (URL url : urls) {
+                setClient(url.getHost());
+                registry.register(url);
+            }
+            report("register", urls.size(), start);
+            start = System.nanoTime();
+            for (URL url : urls) {
+                setClient(url.getHost());
+                registry.unregister(url);
+            }
+            report("unregister", urls.size(), start);
+        }
+    }
+
+    private void report(String phase, int count, long start) throws InterruptedException {
+        long elapsed = System.nanoTime() - start;
+        // let the coalesced notifications go out
+        Thread.sleep(2000);
+        System.out.println(phase + ": " + count + " in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms, "
+                + (count * 1000000000L / Math.max(1, elapsed)) + "/s, notifications " + notifications.getAndSet(0)
+                + ", notified urls " + notifiedUrls.getAndSet(0));
+    }
+
+}
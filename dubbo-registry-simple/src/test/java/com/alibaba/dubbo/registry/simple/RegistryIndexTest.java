@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.UrlUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * RegistryIndexTest
+ */
+public class RegistryIndexTest {
+
+    private static final String[] PROVIDERS = {
+            "dubbo://10.1.0.1:20880/com.foo.BarService?interface=com.foo.BarService",
+            "dubbo://10.1.0.2:20880/com.foo.BarService?interface=com.foo.BarService&group=a&version=1.0",
+            "dubbo://10.1.0.3:20880/com.foo.BarService?interface=com.foo.BarService&group=b&version=1.0",
+            "dubbo://10.1.0.4:20880/com.foo.BarService?interface=com.foo.BarService&version=2.0&enabled=false",
+            "override://0.0.0.0/com.foo.BarService?category=configurators&interface=com.foo.BarService&weight=200",
+            "route://0.0.0.0/com.foo.BarService?category=routers&interface=com.foo.BarService&group=a&version=1.0",
+            "consumer://10.2.0.1/com.foo.BarService?category=consumers&interface=com.foo.BarService",
+            "dubbo://10.1.0.5:20880/com.foo.BazService?interface=com.foo.BazService"};
+
+    private static final String[] QUERIES = {
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=providers,configurators,routers",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=providers,configurators,routers&group=a&version=1.0",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&group=a,b&version=1.0",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&group=*&version=*",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&version=2.0&enabled=*",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=*&group=*&version=*",
+            "admin://10.3.0.1/*?interface=*&category=providers,consumers&group=*&version=*&classifier=*&enabled=*",
+            "consumer://10.2.0.1/com.foo.QuxService?interface=com.foo.QuxService"};
+
+    private static final String[] CATEGORY_QUERIES = {
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=providers,*",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=-routers",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=*,-routers&group=a&version=1.0",
+            "consumer://10.2.0.1/com.foo.BarService?interface=com.foo.BarService&category=-consumers,-providers"};
+
+    private static List<URL> addProviders(RegistryIndex index) {
+        List<URL> providers = new ArrayList<URL>();
+        for (String provider : PROVIDERS) {
+            URL url = URL.valueOf(provider);
+            providers.add(url);
+            Assert.assertTrue(index.add(url));
+        }
+        return providers;
+    }
+
+    private static void assertLookup(RegistryIndex index, List<URL> providers, String[] queries) {
+        for (String query : queries) {
+            URL url = URL.valueOf(query);
+            HashSet<URL> expected = new HashSet<URL>();
+            for (URL provider : providers) {
+                if (UrlUtils.isMatch(url, provider)) {
+                    expected.add(provider);
+                }
+            }
+            Assert.assertFalse(query, expected.isEmpty() && query.contains("category="));
+            Assert.assertEquals(query, expected, new HashSet<URL>(index.lookup(url)));
+        }
+    }
+
+    @Test
+    public void testLookup() {
+        RegistryIndex index = new RegistryIndex();
+        List<URL> providers = addProviders(index);
+        Assert.assertFalse(index.add(providers.get(0)));
+        assertLookup(index, providers, QUERIES);
+        for (URL provider : providers) {
+            Assert.assertTrue(index.remove(provider));
+        }
+        Assert.assertFalse(index.remove(providers.get(0)));
+        Assert.assertTrue(index.lookup(URL.valueOf(QUERIES[7])).isEmpty());
+    }
+
+    @Test
+    public void testCategoryWildcardAndExclusion() {
+        RegistryIndex index = new RegistryIndex();
+        assertLookup(index, addProviders(index), CATEGORY_QUERIES);
+    }
+
+}
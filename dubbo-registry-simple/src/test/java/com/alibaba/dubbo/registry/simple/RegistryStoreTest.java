@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RegistryStoreTest
+ */
+public class RegistryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testJournalAndSnapshot() throws Exception {
+        File directory = folder.newFolder();
+        URL foo = RegisterStormBenchmark.getProvider(0, 0);
+        URL bar = RegisterStormBenchmark.getProvider(0, 1);
+        RegistryStore store = new RegistryStore(directory);
+        store.append("10.0.0.1:20880", foo, true);
+        store.append("10.0.0.2:20880", bar, true);
+        store.append("10.0.0.1:20880", foo, false);
+        store.append("10.0.0.1:20880", foo, true);
+        store.close();
+        store = new RegistryStore(directory);
+        store.append("10.0.0.2:20880", bar, false);
+        // counted in lines, not bytes, after reopening
+        Assert.assertEquals(5, store.getJournalSize());
+        store.append("10.0.0.2:20880", bar, true);
+        store.close();
+
+        Map<String, Set<URL>> registered = new RegistryStore(directory).load();
+        Assert.assertEquals(2, registered.size());
+        Assert.assertTrue(registered.get("10.0.0.1:20880").contains(foo));
+        Assert.assertTrue(registered.get("10.0.0.2:20880").contains(bar));
+
+        store = new RegistryStore(directory);
+        store.snapshot(registered);
+        Assert.assertEquals(0, store.getJournalSize());
+        store.append("10.0.0.2:20880", bar, false);
+        store.close();
+        // torn by a crash
+        FileOutputStream journal = new FileOutputStream(new File(directory, "registry.journal"), true);
+        journal.write("+ 10.0.0.3:20880".getBytes());
+        journal.close();
+
+        registered = new RegistryStore(directory).load();
+        Assert.assertEquals(1, registered.size());
+        Assert.assertEquals(foo.toFullString(), registered.get("10.0.0.1:20880").iterator().next().toFullString());
+    }
+
+}
@@ -16,16 +16,357 @@
  */
 package com.alibaba.dubbo.registry.simple;
 
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.registry.NotifyListener;
+import com.alibaba.dubbo.rpc.RpcContext;
+
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * SimpleRegistryServiceTest
  */
 public class SimpleRegistryServiceTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testRegistry() {
         new SimpleRegistryService();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSubscribeNotifiesBeforeReturn() {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        URL foo = RegisterStormBenchmark.getProvider(0, 0);
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.register(foo);
+        final List<URL> notified = new CopyOnWriteArrayList<URL>();
+        URL consumer = RegisterStormBenchmark.getConsumer(0, 0);
+        RpcContext.getContext().setRemoteAddress(consumer.getHost(), 30000);
+        registry.subscribe(consumer, new NotifyListener() {
+            public void notify(List<URL> urls) {
+                notified.addAll(urls);
+            }
+        });
+        Assert.assertEquals(1, notified.size());
+        Assert.assertEquals(foo, notified.get(0));
+        // a failing listener does not fail the subscription
+        registry.subscribe(RegisterStormBenchmark.getConsumer(0, 1), new NotifyListener() {
+            public void notify(List<URL> urls) {
+                throw new IllegalStateException();
+            }
+        });
+        registry.destroy();
+    }
+
+    @Test
+    public void testUnsubscribeKeepsOtherUrls() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<URL> notified = new CopyOnWriteArrayList<URL>();
+        NotifyListener listener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+                notified.addAll(urls);
+                if (!urls.isEmpty() && blocking.getCount() > 0) {
+                    blocking.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        URL foo = RegisterStormBenchmark.getConsumer(0, 0);
+        URL bar = RegisterStormBenchmark.getConsumer(1, 0);
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.subscribe(foo, listener);
+        registry.subscribe(bar, listener);
+        URL fooProvider = RegisterStormBenchmark.getProvider(0, 0);
+        URL barProvider = RegisterStormBenchmark.getProvider(1, 0);
+        RpcContext.getContext().setRemoteAddress(fooProvider.getHost(), 30000);
+        registry.register(fooProvider);
+        Assert.assertTrue(blocking.await(5, TimeUnit.SECONDS));
+        registry.register(barProvider);
+        long start = System.currentTimeMillis();
+        while (registry.getNotifyLags().get(foo.getHost() + ":30000")[0] == 0 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        // the pending notification of bar survives the unsubscription of foo
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.unsubscribe(foo, listener);
+        release.countDown();
+        await(notified, 2);
+        Assert.assertEquals(Arrays.asList(fooProvider, barProvider), notified);
+        registry.destroy();
+    }
+
+    @Test
+    public void testWildcardSnapshot() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        int services = 250;
+        for (int s = 0; s < services; s++) {
+            for (int p = 0; p < 2; p++) {
+                URL url = RegisterStormBenchmark.getProvider(s, p);
+                RpcContext.getContext().setRemoteAddress(url.getHost(), 30000);
+                registry.register(url);
+            }
+        }
+        final Map<String, List<URL>> notified = new ConcurrentHashMap<String, List<URL>>();
+        RpcContext.getContext().setRemoteAddress("10.3.0.1", 30000);
+        registry.subscribe(URL.valueOf("admin://10.3.0.1/*?interface=*&group=*&version=*&classifier=*&enabled=*"
+                + "&category=providers,consumers,routers,configurators&check=false"), new NotifyListener() {
+            public void notify(List<URL> urls) {
+                notified.put(urls.get(0).getServiceInterface(), urls);
+            }
+        });
+        long start = System.currentTimeMillis();
+        while (notified.size() < services && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(services, notified.size());
+        Assert.assertEquals(2, notified.get(RegisterStormBenchmark.getService(0)).size());
+        registry.destroy();
+    }
+
+    @Test
+    public void testSlowListener() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        RpcContext.getContext().setRemoteAddress("10.2.0.1", 30000);
+        registry.subscribe(RegisterStormBenchmark.getConsumer(0, 0), new NotifyListener() {
+            public void notify(List<URL> urls) {
+                // the first, empty one is sent on the subscribing thread
+                if (urls.isEmpty()) {
+                    return;
+                }
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        long start = System.currentTimeMillis();
+        for (int p = 0; p < 100; p++) {
+            URL url = RegisterStormBenchmark.getProvider(0, p);
+            RpcContext.getContext().setRemoteAddress(url.getHost(), 30000);
+            registry.register(url);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Thread.sleep(500);
+        long[] lag = registry.getNotifyLags().get("10.2.0.1:30000");
+        Assert.assertNotNull(lag);
+        Assert.assertTrue(lag[1] >= 300);
+        Assert.assertTrue(new NotifyStatusChecker().check().getMessage().contains("10.2.0.1:30000"));
+        blocked.countDown();
+        registry.destroy();
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        URL foo = RegisterStormBenchmark.getProvider(0, 0);
+        URL bar = RegisterStormBenchmark.getProvider(0, 1);
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.register(foo);
+        final List<URL> notified = new CopyOnWriteArrayList<URL>();
+        RpcContext.getContext().setRemoteAddress("10.3.0.1", 30000);
+        registry.subscribe(URL.valueOf("admin://10.3.0.1/*?interface=*&group=*&version=*&classifier=*&enabled=*"
+                + "&category=providers,consumers&check=false&delta=true"), new NotifyListener() {
+            public void notify(List<URL> urls) {
+                notified.addAll(urls);
+            }
+        });
+        await(notified, 1);
+        Assert.assertEquals(String.valueOf(registry.getRevision(foo.getServiceInterface())), notified.get(0).getParameter("revision"));
+        Assert.assertFalse(notified.get(0).hasParameter("delta"));
+
+        RpcContext.getContext().setRemoteAddress(bar.getHost(), 30000);
+        registry.register(bar);
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.unregister(foo);
+        await(notified, 3);
+        Assert.assertEquals(bar.getAddress(), notified.get(1).getAddress());
+        Assert.assertEquals("add", notified.get(1).getParameter("delta"));
+        Assert.assertEquals(foo.getAddress(), notified.get(2).getAddress());
+        Assert.assertEquals("remove", notified.get(2).getParameter("delta"));
+        Assert.assertEquals(registry.getRevision(), notified.get(2).getParameter("revision", 0L));
+        Assert.assertEquals(3, notified.size());
+        registry.destroy();
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        int services = 300;
+        RpcContext.getContext().setRemoteAddress("10.2.0.1", 30000);
+        NotifyListener listener = new NotifyListener() {
+            public void notify(List<URL> urls) {
+            }
+        };
+        for (int s = 0; s < services; s++) {
+            registry.subscribe(RegisterStormBenchmark.getConsumer(s, 0), listener);
+        }
+        registry.subscribe(URL.valueOf("admin://10.2.0.1/*?interface=*&group=*&version=*&classifier=*&enabled=*"
+                + "&category=providers,consumers&check=false"), listener);
+        RpcContext.getContext().setRemoteAddress("10.1.0.1", 30000);
+        for (int s = 0; s < services; s++) {
+            registry.register(RegisterStormBenchmark.getProvider(s, 0));
+        }
+        long changes = registry.getNotifyChanges();
+        registry.disconnect();
+        Assert.assertEquals(services + 1, registry.getNotifyChanges() - changes);
+        Assert.assertEquals(0, registry.lookup(RegisterStormBenchmark.getConsumer(0, 0)).size());
+        Assert.assertFalse(registry.getClients().contains("10.1.0.1:30000"));
+
+        RpcContext.getContext().setRemoteAddress("10.2.0.1", 30000);
+        for (int s = 0; s < services; s++) {
+            registry.unsubscribe(RegisterStormBenchmark.getConsumer(s, 0), listener);
+        }
+        Assert.assertTrue(registry.getClients().contains("10.2.0.1:30000"));
+        registry.disconnect();
+        Assert.assertTrue(registry.getClients().isEmpty());
+        // no subscription is left to match
+        changes = registry.getNotifyChanges();
+        RpcContext.getContext().setRemoteAddress("10.1.0.1", 30000);
+        registry.register(RegisterStormBenchmark.getProvider(0, 0));
+        Assert.assertEquals(changes, registry.getNotifyChanges());
+        registry.destroy();
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        SimpleRegistryService registry = new SimpleRegistryService();
+        URL foo = RegisterStormBenchmark.getProvider(0, 0);
+        URL bar = RegisterStormBenchmark.getProvider(0, 1);
+        RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+        registry.register(foo);
+        registry.register(bar);
+        final List<List<URL>> notified = new CopyOnWriteArrayList<List<URL>>();
+        URL consumer = RegisterStormBenchmark.getConsumer(0, 0);
+        RpcContext.getContext().setRemoteAddress(consumer.getHost(), 30000);
+        registry.subscribe(consumer, new NotifyListener() {
+            public void notify(List<URL> urls) {
+                notified.add(urls);
+            }
+        });
+        long revision = registry.getRevision();
+        long changes = registry.getNotifyChanges();
+        URL disabled = foo.addParameter("disabled", true);
+        RpcContext.getContext().setRemoteAddress("10.3.0.1", 30000);
+        registry.update(Arrays.asList(disabled, bar), Arrays.asList(foo, bar));
+        Assert.assertEquals(revision + 1, registry.getRevision());
+        Assert.assertEquals(1, registry.getNotifyChanges() - changes);
+        long start = System.currentTimeMillis();
+        while (notified.size() < 2 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(2, notified.get(1).size());
+        Assert.assertTrue(notified.get(1).contains(disabled));
+        Assert.assertTrue(notified.get(1).contains(bar));
+        registry.destroy();
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        System.setProperty("dubbo.registry.store.directory", folder.newFolder().getPath());
+        System.setProperty("dubbo.registry.store.grace-period", "500");
+        try {
+            SimpleRegistryService registry = new SimpleRegistryService();
+            URL foo = RegisterStormBenchmark.getProvider(0, 0);
+            URL bar = RegisterStormBenchmark.getProvider(0, 1);
+            RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+            registry.register(foo);
+            RpcContext.getContext().setRemoteAddress(bar.getHost(), 30000);
+            registry.register(bar);
+            registry.destroy();
+
+            registry = new SimpleRegistryService();
+            URL consumer = RegisterStormBenchmark.getConsumer(0, 0);
+            Assert.assertEquals(2, registry.lookup(consumer).size());
+            Assert.assertEquals(2, registry.getProvisionalSize());
+            final List<URL> notified = new CopyOnWriteArrayList<URL>();
+            RpcContext.getContext().setRemoteAddress(consumer.getHost(), 30000);
+            registry.subscribe(consumer, new NotifyListener() {
+                public void notify(List<URL> urls) {
+                    notified.clear();
+                    notified.addAll(urls);
+                }
+            });
+            RpcContext.getContext().setRemoteAddress(foo.getHost(), 30001);
+            registry.register(foo);
+            Assert.assertEquals(1, registry.getProvisionalSize());
+            Thread.sleep(1500);
+            Assert.assertEquals(0, registry.getProvisionalSize());
+            Assert.assertEquals(1, registry.lookup(consumer).size());
+            Assert.assertEquals(1, notified.size());
+            Assert.assertEquals(foo, notified.get(0));
+            registry.destroy();
+        } finally {
+            System.clearProperty("dubbo.registry.store.directory");
+            System.clearProperty("dubbo.registry.store.grace-period");
+        }
+    }
+
+    @Test
+    public void testLeaseExpired() throws Exception {
+        System.setProperty("dubbo.registry.lease", "1000");
+        System.setProperty("dubbo.registry.lease.tick", "50");
+        try {
+            SimpleRegistryService registry = new SimpleRegistryService();
+            URL foo = RegisterStormBenchmark.getProvider(0, 0);
+            URL bar = RegisterStormBenchmark.getProvider(0, 1);
+            RpcContext.getContext().setRemoteAddress(foo.getHost(), 30000);
+            registry.register(foo);
+            registry.register(bar);
+            Thread.sleep(500);
+            final List<Integer> notified = new CopyOnWriteArrayList<Integer>();
+            URL consumer = RegisterStormBenchmark.getConsumer(0, 0);
+            RpcContext.getContext().setRemoteAddress(consumer.getHost(), 30000);
+            registry.subscribe(consumer, new NotifyListener() {
+                public void notify(List<URL> urls) {
+                    notified.add(urls.size());
+                }
+            });
+            long start = System.currentTimeMillis();
+            while (notified.size() < 2 && System.currentTimeMillis() - start < 5000) {
+                Thread.sleep(10);
+            }
+            // the subscriber is renewed later, its lease is still running
+            Assert.assertEquals(1, registry.getLeaseExpired());
+            Assert.assertEquals(1, registry.getLeaseSize());
+            Assert.assertEquals(0, registry.lookup(consumer).size());
+            Assert.assertEquals(2, notified.size());
+            Assert.assertEquals(2, notified.get(0).intValue());
+            Assert.assertEquals(0, notified.get(1).intValue());
+            registry.destroy();
+        } finally {
+            System.clearProperty("dubbo.registry.lease");
+            System.clearProperty("dubbo.registry.lease.tick");
+        }
+    }
+
+    private static void await(List<URL> notified, int size) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (notified.size() < size && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+    }
+
+}
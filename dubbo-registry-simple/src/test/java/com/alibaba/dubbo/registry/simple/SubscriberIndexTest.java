@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.simple;
+
+import com.alibaba.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * SubscriberIndexTest
+ */
+public class SubscriberIndexTest {
+
+    private static final URL WILDCARD = URL.valueOf("admin://10.3.0.1/*?interface=*&group=*&version=*&classifier=*"
+            + "&category=providers,consumers&check=false");
+
+    @Test
+    public void testMatchService() {
+        SubscriberIndex index = new SubscriberIndex();
+        URL foo = RegisterStormBenchmark.getConsumer(0, 0);
+        URL foo2 = RegisterStormBenchmark.getConsumer(0, 1);
+        URL bar = RegisterStormBenchmark.getConsumer(1, 0);
+        index.add(foo);
+        index.add(foo2);
+        index.add(bar);
+        Assert.assertEquals(2, index.getServiceCount());
+        Assert.assertEquals(new HashSet<URL>(Arrays.asList(foo, foo2)),
+                new HashSet<URL>(index.match(RegisterStormBenchmark.getProvider(0, 0))));
+        Assert.assertEquals(Arrays.asList(bar), index.match(RegisterStormBenchmark.getProvider(1, 0)));
+        Assert.assertTrue(index.match(RegisterStormBenchmark.getProvider(2, 0)).isEmpty());
+        // the consumers subscribe to providers, not to other consumers
+        Assert.assertTrue(index.match(RegisterStormBenchmark.getConsumer(0, 2).addParameter("category", "consumers")).isEmpty());
+    }
+
+    @Test
+    public void testMatchWildcard() {
+        SubscriberIndex index = new SubscriberIndex();
+        URL foo = RegisterStormBenchmark.getConsumer(0, 0);
+        index.add(foo);
+        index.add(WILDCARD);
+        Assert.assertEquals(1, index.getServiceCount());
+        Assert.assertEquals(1, index.getWildcardCount());
+        Assert.assertEquals(Arrays.asList(foo, WILDCARD), index.match(RegisterStormBenchmark.getProvider(0, 0)));
+        Assert.assertEquals(Arrays.asList(WILDCARD), index.match(RegisterStormBenchmark.getProvider(1, 0)));
+        Assert.assertEquals(Arrays.asList(WILDCARD),
+                index.match(RegisterStormBenchmark.getConsumer(0, 1).addParameter("category", "consumers")));
+    }
+
+    @Test
+    public void testRemoveIfUnused() {
+        SubscriberIndex index = new SubscriberIndex();
+        URL foo = RegisterStormBenchmark.getConsumer(0, 0);
+        URL foo2 = RegisterStormBenchmark.getConsumer(0, 1);
+        index.add(foo);
+        index.add(foo2);
+        index.add(WILDCARD);
+        Set<String> listeners = Collections.singleton("listener");
+        index.removeIfUnused(foo, listeners);
+        index.removeIfUnused(WILDCARD, listeners);
+        Assert.assertEquals(3, index.match(RegisterStormBenchmark.getProvider(0, 0)).size());
+
+        index.removeIfUnused(foo, Collections.emptySet());
+        Assert.assertEquals(Arrays.asList(foo2, WILDCARD), index.match(RegisterStormBenchmark.getProvider(0, 0)));
+        index.removeIfUnused(foo2, null);
+        Assert.assertEquals(0, index.getServiceCount());
+        index.removeIfUnused(WILDCARD, Collections.emptySet());
+        Assert.assertEquals(0, index.getWildcardCount());
+        Assert.assertTrue(index.match(RegisterStormBenchmark.getProvider(0, 0)).isEmpty());
+        // removing again is harmless
+        index.removeIfUnused(foo, null);
+        Assert.assertEquals(0, index.getServiceCount());
+    }
+
+}